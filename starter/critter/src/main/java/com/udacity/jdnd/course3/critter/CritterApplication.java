@@ -4,14 +4,21 @@ import org.modelmapper.ModelMapper;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class CritterApplication {
 
 	public static void main(String[] args) {
 		SpringApplication.run(CritterApplication.class, args);
 	}
 
+	/**
+	 * Reflective fallback only. Entity/DTO conversions on request paths go through the
+	 * hand-written mappers ({@code PetMapper}, {@code CustomerMapper}, {@code EmployeeMapper},
+	 * {@code ScheduleMapper}).
+	 */
 	@Bean
 	public ModelMapper mapper() {
 		return new ModelMapper();
@@ -0,0 +1,14 @@
+package com.udacity.jdnd.course3.critter.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class CacheRegionStatsDTO {
+    private String region;
+    private long hits;
+    private long misses;
+    private long puts;
+    private long evictions;
+}
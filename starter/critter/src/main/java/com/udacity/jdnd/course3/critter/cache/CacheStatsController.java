@@ -0,0 +1,23 @@
+package com.udacity.jdnd.course3.critter.cache;
+
+import com.udacity.jdnd.course3.critter.service.CacheStatsService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/cache")
+public class CacheStatsController {
+    private final CacheStatsService cacheStatsService;
+
+    public CacheStatsController(CacheStatsService cacheStatsService) {
+        this.cacheStatsService = cacheStatsService;
+    }
+
+    @GetMapping("/stats")
+    public List<CacheRegionStatsDTO> getStats() {
+        return cacheStatsService.getRegionStats();
+    }
+}
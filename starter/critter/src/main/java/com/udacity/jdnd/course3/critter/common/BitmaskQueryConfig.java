@@ -0,0 +1,33 @@
+package com.udacity.jdnd.course3.critter.common;
+
+import org.hibernate.boot.spi.MetadataBuilderContributor;
+import org.hibernate.boot.spi.MetadataBuilderImplementor;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.function.SQLFunctionTemplate;
+import org.hibernate.engine.jdbc.spi.JdbcServices;
+import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
+import org.hibernate.type.StandardBasicTypes;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Makes {@code bitand(a, b)} available in JPQL on every database, for filtering the
+ * {@link EnumSetMaskConverter} columns. Dialects that know the function, like H2's, keep
+ * their own; the rest get the {@code &} operator, which MySQL and PostgreSQL both have.
+ */
+@Configuration
+public class BitmaskQueryConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer bitandFunction() {
+        MetadataBuilderContributor contributor = metadataBuilder -> {
+            Dialect dialect = ((MetadataBuilderImplementor) metadataBuilder).getBootstrapContext()
+                    .getServiceRegistry().getService(JdbcServices.class).getDialect();
+            if (!dialect.getFunctions().containsKey("bitand")) {
+                metadataBuilder.applySqlFunction("bitand", new SQLFunctionTemplate(StandardBasicTypes.INTEGER, "(?1 & ?2)"));
+            }
+        };
+        return properties -> properties.put(EntityManagerFactoryBuilderImpl.METADATA_BUILDER_CONTRIBUTOR, contributor);
+    }
+}
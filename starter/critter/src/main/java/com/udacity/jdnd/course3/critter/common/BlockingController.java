@@ -0,0 +1,14 @@
+package com.udacity.jdnd.course3.critter.common;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a controller whose handlers make blocking JPA calls. With {@code critter.async.enabled}
+ * its handlers run on the bounded executor set up by {@link BlockingExecutionConfig} instead of
+ * a container thread. Handlers must return plain values, not async types of their own.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface BlockingController {
+}
@@ -0,0 +1,47 @@
+package com.udacity.jdnd.course3.critter.common;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+/**
+ * Opt-in with {@code critter.async.enabled=true}. Threads default to the connection pool size,
+ * since each request in flight holds a connection until it completes and more threads would
+ * only wait on the pool.
+ * <p>
+ * The executor is deliberately not a bean: a bean of that type would replace the application
+ * task executor that streamed exports run on.
+ */
+@Configuration
+@ConditionalOnProperty(name = "critter.async.enabled", havingValue = "true")
+public class BlockingExecutionConfig implements WebMvcRegistrations, DisposableBean {
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    private final int permits;
+    private final long timeoutMillis;
+
+    public BlockingExecutionConfig(@Value("${critter.async.threads:${spring.datasource.hikari.maximum-pool-size:10}}") int threads,
+                                   @Value("${critter.async.queue-capacity:100}") int queueCapacity,
+                                   @Value("${critter.async.timeout-ms:30000}") long timeoutMillis) {
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("blocking-");
+        executor.initialize();
+        this.permits = threads + queueCapacity;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public RequestMappingHandlerAdapter getRequestMappingHandlerAdapter() {
+        return new OffloadingHandlerAdapter(executor, permits, timeoutMillis);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
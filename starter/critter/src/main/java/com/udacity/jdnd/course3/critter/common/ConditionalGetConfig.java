@@ -0,0 +1,40 @@
+package com.udacity.jdnd.course3.critter.common;
+
+import com.udacity.jdnd.course3.critter.service.PetService;
+import com.udacity.jdnd.course3.critter.service.ScheduleService;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import static com.udacity.jdnd.course3.critter.common.ConditionalGetInterceptor.dateParameter;
+import static com.udacity.jdnd.course3.critter.common.ConditionalGetInterceptor.pathVariable;
+
+/**
+ * ETags for the endpoints clients poll. Each tag comes from one aggregate over version
+ * columns, so an unchanged poll costs a single small query and no serialization, and it is
+ * answered before the request is handed to the blocking executor.
+ */
+@Configuration
+public class ConditionalGetConfig implements WebMvcConfigurer {
+    private final PetService petService;
+    private final ScheduleService scheduleService;
+
+    public ConditionalGetConfig(PetService petService, ScheduleService scheduleService) {
+        this.petService = petService;
+        this.scheduleService = scheduleService;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ConditionalGetInterceptor(request ->
+                petService.getPetETag(pathVariable(request, "petId"))))
+                .addPathPatterns("/pet/{petId}");
+        registry.addInterceptor(new ConditionalGetInterceptor(request ->
+                petService.getPetsByOwnerETag(pathVariable(request, "ownerId"))))
+                .addPathPatterns("/pet/owner/{ownerId}");
+        registry.addInterceptor(new ConditionalGetInterceptor(request ->
+                scheduleService.getScheduleForEmployeeETag(pathVariable(request, "employeeId"),
+                        dateParameter(request, "from"), dateParameter(request, "to"))))
+                .addPathPatterns("/schedule/employee/{employeeId}");
+    }
+}
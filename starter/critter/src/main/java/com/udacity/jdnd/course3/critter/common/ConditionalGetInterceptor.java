@@ -0,0 +1,57 @@
+package com.udacity.jdnd.course3.critter.common;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Answers a GET with 304 Not Modified before the handler runs when {@code If-None-Match} still
+ * matches the tag, and otherwise adds the tag to the response the handler goes on to write.
+ * The tag is read before the data, so a concurrent change can only leave it older than the
+ * body: the client pays for one more full response, but is never told stale data is current.
+ */
+public class ConditionalGetInterceptor implements HandlerInterceptor {
+    private final Function<HttpServletRequest, String> eTagOf;
+
+    /**
+     * @param eTagOf the current tag for a request, or null to skip validation
+     */
+    public ConditionalGetInterceptor(Function<HttpServletRequest, String> eTagOf) {
+        this.eTagOf = eTagOf;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!HttpMethod.GET.matches(request.getMethod())) {
+            return true;
+        }
+        String eTag;
+        try {
+            eTag = eTagOf.apply(request);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            // malformed ids and dates are rejected by the handler's own binding
+            return true;
+        }
+        return Objects.isNull(eTag) || !new ServletWebRequest(request, response).checkNotModified(eTag);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static long pathVariable(HttpServletRequest request, String name) {
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        return Long.parseLong(variables.get(name));
+    }
+
+    public static LocalDate dateParameter(HttpServletRequest request, String name) {
+        String value = request.getParameter(name);
+        return Objects.isNull(value) || value.isEmpty() ? null : LocalDate.parse(value);
+    }
+}
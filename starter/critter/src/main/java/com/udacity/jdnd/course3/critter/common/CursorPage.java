@@ -0,0 +1,69 @@
+package com.udacity.jdnd.course3.critter.common;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * One page of a keyset-paginated listing. Rows are ordered by id and the cursor is an
+ * opaque token for the last id returned; a null {@code nextCursor} means there is no more data.
+ */
+@Getter
+public class CursorPage<T> {
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Builds a page from rows fetched with {@code limit + 1}; the extra row only signals
+     * that another page exists and is not returned.
+     */
+    public static <E, T> CursorPage<T> of(List<E> rows, int limit, ToLongFunction<E> idOf, Function<E, T> mapper) {
+        boolean hasMore = rows.size() > limit;
+        List<E> page = hasMore ? rows.subList(0, limit) : rows;
+        String next = hasMore ? encode(idOf.applyAsLong(page.get(page.size() - 1))) : null;
+        return new CursorPage<>(page.stream().map(mapper).collect(Collectors.toList()), next);
+    }
+
+    public static int limit(Integer requested) {
+        if (Objects.isNull(requested)) {
+            return DEFAULT_LIMIT;
+        }
+        if (requested < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be positive");
+        }
+        return Math.min(requested, MAX_LIMIT);
+    }
+
+    public static long decode(String cursor) {
+        if (Objects.isNull(cursor) || cursor.isEmpty()) {
+            return 0L;
+        }
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+            return ByteBuffer.wrap(bytes).getLong();
+        } catch (IllegalArgumentException | java.nio.BufferUnderflowException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid cursor", e);
+        }
+    }
+
+    public static String encode(long id) {
+        byte[] bytes = ByteBuffer.allocate(Long.BYTES).putLong(id).array();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
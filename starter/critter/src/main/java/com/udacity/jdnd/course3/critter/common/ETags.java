@@ -0,0 +1,32 @@
+package com.udacity.jdnd.course3.critter.common;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Builds weak entity tags from version columns and version summaries, so a response can be
+ * validated without loading or serializing what it contains.
+ */
+public final class ETags {
+
+    private ETags() {
+    }
+
+    /**
+     * A weak tag over the parts in order, with nulls (sums over no rows) written as zero.
+     */
+    public static String weak(Object... parts) {
+        return Stream.of(parts)
+                .map(part -> Objects.isNull(part) ? "0" : part.toString())
+                .collect(Collectors.joining("-", "W/\"", "\""));
+    }
+
+    /**
+     * A weak tag over the one (count, sum of ids, sum of versions) row a summary query returns.
+     */
+    public static String summary(List<Object[]> rows) {
+        return rows.isEmpty() ? weak(0) : weak(rows.get(0));
+    }
+}
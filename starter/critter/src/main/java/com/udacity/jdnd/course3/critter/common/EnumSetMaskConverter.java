@@ -0,0 +1,59 @@
+package com.udacity.jdnd.course3.critter.common;
+
+import javax.persistence.AttributeConverter;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Stores a set of enum constants as an int with bit {@code 1 << ordinal()} set for each
+ * member, so the set lives in its owner's row and can be filtered with {@code bitand} in
+ * queries. Constants may be appended to the enum but never reordered or removed, since
+ * stored masks refer to them by position. A null set is stored as 0 and reads back empty.
+ * Sets stored by earlier versions in element-collection tables are copied over by
+ * {@code db/bitmask-migration.sql}.
+ */
+public abstract class EnumSetMaskConverter<E extends Enum<E>> implements AttributeConverter<Set<E>, Integer> {
+    private final Class<E> type;
+
+    protected EnumSetMaskConverter(Class<E> type) {
+        if (type.getEnumConstants().length > Integer.SIZE - 1) {
+            throw new IllegalArgumentException(type.getName() + " has too many constants for an int mask");
+        }
+        this.type = type;
+    }
+
+    @Override
+    public Integer convertToDatabaseColumn(Set<E> values) {
+        return mask(values);
+    }
+
+    @Override
+    public Set<E> convertToEntityAttribute(Integer mask) {
+        Set<E> values = EnumSet.noneOf(type);
+        if (Objects.isNull(mask)) {
+            return values;
+        }
+        for (E value : type.getEnumConstants()) {
+            if ((mask & bit(value)) != 0) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+
+    public static int bit(Enum<?> value) {
+        return 1 << value.ordinal();
+    }
+
+    public static int mask(Collection<? extends Enum<?>> values) {
+        int mask = 0;
+        if (Objects.nonNull(values)) {
+            for (Enum<?> value : values) {
+                mask |= bit(value);
+            }
+        }
+        return mask;
+    }
+}
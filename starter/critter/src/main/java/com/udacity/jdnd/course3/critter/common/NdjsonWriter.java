@@ -0,0 +1,48 @@
+package com.udacity.jdnd.course3.critter.common;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes one JSON document per line to a stream. Rows are serialized straight into the
+ * generator's buffer and only flushed every {@code flushEvery} rows; closing flushes the rest
+ * but leaves the underlying stream open.
+ */
+public class NdjsonWriter implements Closeable {
+    public static final String MEDIA_TYPE = "application/x-ndjson";
+
+    private final ObjectWriter writer;
+    private final JsonGenerator generator;
+    private final int flushEvery;
+    private long rows;
+
+    public NdjsonWriter(ObjectMapper objectMapper, OutputStream out, int flushEvery) throws IOException {
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.generator = objectMapper.getFactory().createGenerator(out);
+        this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.flushEvery = flushEvery;
+    }
+
+    public void write(Object row) throws IOException {
+        writer.writeValue(generator, row);
+        generator.writeRaw('\n');
+        if (++rows % flushEvery == 0) {
+            generator.flush();
+        }
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
@@ -0,0 +1,85 @@
+package com.udacity.jdnd.course3.critter.common;
+
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.ServletInvocableHandlerMethod;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs handlers of {@link BlockingController}s as {@link WebAsyncTask}s on a bounded executor.
+ * Arguments, including the request body, are still resolved on the container thread; only the
+ * handler call moves, and the result is written back through the normal async dispatch.
+ * <p>
+ * A request needs a permit before it is queued. Permits cover the executor's threads plus its
+ * queue, so once both are full new requests fail at once with 503 rather than waiting to time out.
+ */
+public class OffloadingHandlerAdapter extends RequestMappingHandlerAdapter {
+    private final AsyncTaskExecutor executor;
+    private final Semaphore permits;
+    private final long timeoutMillis;
+
+    public OffloadingHandlerAdapter(AsyncTaskExecutor executor, int permits, long timeoutMillis) {
+        this.executor = executor;
+        this.permits = new Semaphore(permits);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    protected ServletInvocableHandlerMethod createInvocableHandlerMethod(HandlerMethod handlerMethod) {
+        if (AnnotatedElementUtils.hasAnnotation(handlerMethod.getBeanType(), BlockingController.class)) {
+            return new OffloadedHandlerMethod(handlerMethod);
+        }
+        return super.createInvocableHandlerMethod(handlerMethod);
+    }
+
+    private class OffloadedHandlerMethod extends ServletInvocableHandlerMethod {
+
+        OffloadedHandlerMethod(HandlerMethod handlerMethod) {
+            super(handlerMethod);
+        }
+
+        /**
+         * The permit is given back when the handler finishes, or when the async request
+         * completes if a timeout cancelled the task before it ran.
+         */
+        @Override
+        public Object invokeForRequest(NativeWebRequest request, ModelAndViewContainer mavContainer, Object... providedArgs) throws Exception {
+            Object[] args = getMethodArgumentValues(request, mavContainer, providedArgs);
+            if (!permits.tryAcquire()) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many requests in progress");
+            }
+            AtomicBoolean released = new AtomicBoolean();
+            Runnable release = () -> {
+                if (released.compareAndSet(false, true)) {
+                    permits.release();
+                }
+            };
+            WebAsyncTask<Object> task = new WebAsyncTask<>(timeoutMillis, executor, () -> {
+                try {
+                    return doInvoke(args);
+                } catch (Exception e) {
+                    // a timeout interrupts the task before it records its own result, so an
+                    // interrupted handler's failure could otherwise reach the client instead of 503
+                    if (e instanceof InterruptedException || Thread.interrupted()) {
+                        throw new AsyncRequestTimeoutException();
+                    }
+                    throw e;
+                } finally {
+                    release.run();
+                }
+            });
+            task.onCompletion(release);
+            return task;
+        }
+    }
+}
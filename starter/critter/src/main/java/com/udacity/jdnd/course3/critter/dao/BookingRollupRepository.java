@@ -0,0 +1,50 @@
+package com.udacity.jdnd.course3.critter.dao;
+
+import com.udacity.jdnd.course3.critter.user.EmployeeSkill;
+import com.udacity.jdnd.course3.critter.utilization.BookingRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface BookingRollupRepository extends JpaRepository<BookingRollup, Long> {
+    @Query("SELECT rollup FROM BookingRollup rollup WHERE rollup.employeeId IN :employeeIds AND rollup.date IN :dates")
+    List<BookingRollup> findRollups(@Param("employeeIds") Collection<Long> employeeIds, @Param("dates") Collection<LocalDate> dates);
+
+    /**
+     * (activity, bookings) rows for one employee.
+     */
+    @Query("SELECT rollup.activity, SUM(rollup.bookings) FROM BookingRollup rollup " +
+            "WHERE rollup.employeeId = :employeeId AND rollup.date BETWEEN :from AND :to GROUP BY rollup.activity")
+    List<Object[]> sumByActivity(@Param("employeeId") long employeeId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("SELECT COUNT(DISTINCT rollup.date) FROM BookingRollup rollup " +
+            "WHERE rollup.employeeId = :employeeId AND rollup.date BETWEEN :from AND :to")
+    long countBookedDays(@Param("employeeId") long employeeId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * (date, activity, bookings) rows, for the given activities.
+     */
+    @Query("SELECT rollup.date, rollup.activity, SUM(rollup.bookings) FROM BookingRollup rollup " +
+            "WHERE rollup.date BETWEEN :from AND :to AND rollup.activity IN :activities " +
+            "GROUP BY rollup.date, rollup.activity")
+    List<Object[]> sumByDateAndActivity(@Param("from") LocalDate from, @Param("to") LocalDate to, @Param("activities") Collection<EmployeeSkill> activities);
+
+    /**
+     * (date, booked employees) rows, for the given activities.
+     */
+    @Query("SELECT rollup.date, COUNT(DISTINCT rollup.employeeId) FROM BookingRollup rollup " +
+            "WHERE rollup.date BETWEEN :from AND :to AND rollup.activity IN :activities " +
+            "GROUP BY rollup.date")
+    List<Object[]> countBookedEmployeesByDate(@Param("from") LocalDate from, @Param("to") LocalDate to, @Param("activities") Collection<EmployeeSkill> activities);
+
+    @Modifying
+    @Query("DELETE FROM BookingRollup rollup WHERE rollup.employeeId IN :employeeIds")
+    int deleteByEmployeeIds(@Param("employeeIds") Collection<Long> employeeIds);
+}
@@ -1,12 +1,47 @@
 package com.udacity.jdnd.course3.critter.dao;
 
 import com.udacity.jdnd.course3.critter.user.Customer;
+import com.udacity.jdnd.course3.critter.user.CustomerDTO;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
-    @Query("SELECT customer FROM Customer customer INNER JOIN customer.pets pet WHERE pet.id = :petId")
-    Customer findByPet(long petId);
+    @Query("SELECT new com.udacity.jdnd.course3.critter.user.CustomerDTO(customer.id, customer.name, customer.phoneNumber, customer.notes) " +
+            "FROM Customer customer ORDER BY customer.id")
+    List<CustomerDTO> findAllAsDTO();
+
+    @Query("SELECT new com.udacity.jdnd.course3.critter.user.CustomerDTO(customer.id, customer.name, customer.phoneNumber, customer.notes) " +
+            "FROM Customer customer WHERE customer.id > :afterId ORDER BY customer.id")
+    List<CustomerDTO> findPageAsDTO(@Param("afterId") long afterId, Pageable pageable);
+
+    /**
+     * Forward-only scan for exports: one (id, name, phone number, notes, pet id) row per pet,
+     * or a single row with a null pet id, ordered so each customer's rows are adjacent.
+     */
+    @Query("SELECT customer.id, customer.name, customer.phoneNumber, customer.notes, pet.id " +
+            "FROM Customer customer LEFT JOIN customer.pets pet ORDER BY customer.id, pet.id")
+    @QueryHints({@QueryHint(name = "org.hibernate.fetchSize", value = PetRepository.EXPORT_FETCH_SIZE),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")})
+    Stream<Object[]> streamAllForExport();
+
+    @Query("SELECT customer.version FROM Customer customer WHERE customer.id = :customerId")
+    Optional<Long> findVersion(@Param("customerId") long customerId);
+
+    @Query("SELECT customer.id FROM Customer customer WHERE customer.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new com.udacity.jdnd.course3.critter.user.CustomerDTO(customer.id, customer.name, customer.phoneNumber, customer.notes) " +
+            "FROM Pet pet INNER JOIN pet.customer customer WHERE pet.id = :petId")
+    CustomerDTO findOwnerAsDTO(@Param("petId") long petId);
 }
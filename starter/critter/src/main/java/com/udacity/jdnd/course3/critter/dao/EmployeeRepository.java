@@ -1,16 +1,39 @@
 package com.udacity.jdnd.course3.critter.dao;
 
 import com.udacity.jdnd.course3.critter.user.Employee;
-import com.udacity.jdnd.course3.critter.user.EmployeeSkill;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.time.DayOfWeek;
+import java.util.Collection;
 import java.util.List;
-import java.util.Set;
+import java.util.Optional;
 
 @Repository
 public interface EmployeeRepository extends JpaRepository<Employee, Long> {
-    List<Employee> findByDaysAvailable(DayOfWeek dayOfWeek);
+    @Query("SELECT employee.version FROM Employee employee WHERE employee.id = :employeeId")
+    Optional<Long> findVersion(@Param("employeeId") long employeeId);
+
+    /**
+     * Employees working on every day in {@code dayMask} who have every skill in
+     * {@code skillMask}, both masks as stored by {@link com.udacity.jdnd.course3.critter.common.EnumSetMaskConverter}.
+     */
+    @Query("SELECT employee FROM Employee employee " +
+            "WHERE bitand(employee.daysAvailable, :dayMask) = :dayMask AND bitand(employee.skills, :skillMask) = :skillMask " +
+            "ORDER BY employee.id")
+    List<Employee> findAvailable(@Param("dayMask") int dayMask, @Param("skillMask") int skillMask);
+
+    @Query("SELECT COUNT(employee) FROM Employee employee " +
+            "WHERE bitand(employee.daysAvailable, :dayMask) = :dayMask AND bitand(employee.skills, :skillMask) = :skillMask")
+    long countAvailable(@Param("dayMask") int dayMask, @Param("skillMask") int skillMask);
+
+    @Query("SELECT employee.id FROM Employee employee ORDER BY employee.id")
+    List<Long> findAllIds();
+
+    @Query("SELECT employee.id, employee.skills, employee.daysAvailable FROM Employee employee")
+    List<Object[]> findAllSkillsAndDays();
+
+    @Query("SELECT employee.id, employee.daysAvailable FROM Employee employee WHERE employee.id IN :employeeIds")
+    List<Object[]> findDaysAvailable(@Param("employeeIds") Collection<Long> employeeIds);
 }
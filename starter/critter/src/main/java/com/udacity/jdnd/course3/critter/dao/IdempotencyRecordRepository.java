@@ -0,0 +1,16 @@
+package com.udacity.jdnd.course3.critter.dao;
+
+import com.udacity.jdnd.course3.critter.idempotency.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord record WHERE record.createdAt < :cutoff")
+    int deleteCreatedBefore(Instant cutoff);
+}
@@ -1,12 +1,48 @@
 package com.udacity.jdnd.course3.critter.dao;
 
 import com.udacity.jdnd.course3.critter.pet.Pet;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface PetRepository extends JpaRepository<Pet, Long> {
+    String EXPORT_FETCH_SIZE = "1000";
+
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     List<Pet> findByCustomerId(long ownerId);
+
+    List<Pet> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+    /**
+     * Forward-only scan for exports: (id, type, name, owner id, birth date, notes) rows that
+     * never enter the persistence context.
+     */
+    @Query("SELECT pet.id, pet.type, pet.name, customer.id, pet.birthDate, pet.notes " +
+            "FROM Pet pet LEFT JOIN pet.customer customer ORDER BY pet.id")
+    @QueryHints({@QueryHint(name = "org.hibernate.fetchSize", value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")})
+    Stream<Object[]> streamAllForExport();
+
+    @Query("SELECT pet.version FROM Pet pet WHERE pet.id = :petId")
+    Optional<Long> findVersion(@Param("petId") long petId);
+
+    /**
+     * A single (count, sum of ids, sum of versions) row over the owner's pets. Adding, removing
+     * or changing a pet changes at least one of them, which is all a validator needs.
+     */
+    @Query("SELECT COUNT(pet), SUM(pet.id), SUM(pet.version) FROM Pet pet WHERE pet.customer.id = :ownerId")
+    List<Object[]> summarizeVersionsByCustomerId(@Param("ownerId") long ownerId);
+
+    @Query("SELECT pet.customer.id, pet.id FROM Pet pet WHERE pet.customer.id IN :customerIds ORDER BY pet.id")
+    List<Object[]> findPetIdsByCustomerIds(@Param("customerIds") Collection<Long> customerIds);
 }
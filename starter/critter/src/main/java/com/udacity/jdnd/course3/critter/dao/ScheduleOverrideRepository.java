@@ -0,0 +1,21 @@
+package com.udacity.jdnd.course3.critter.dao;
+
+import com.udacity.jdnd.course3.critter.schedule.ScheduleOverride;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ScheduleOverrideRepository extends JpaRepository<ScheduleOverride, Long> {
+    Optional<ScheduleOverride> findByScheduleIdAndOriginalDate(long scheduleId, LocalDate originalDate);
+
+    @Query("SELECT override.schedule.id, override.originalDate, override.date FROM ScheduleOverride override " +
+            "WHERE override.schedule.id IN :scheduleIds")
+    List<Object[]> findOverrides(@Param("scheduleIds") Collection<Long> scheduleIds);
+}
@@ -3,15 +3,92 @@ package com.udacity.jdnd.course3.critter.dao;
 import com.udacity.jdnd.course3.critter.pet.Pet;
 import com.udacity.jdnd.course3.critter.schedule.Schedule;
 import com.udacity.jdnd.course3.critter.user.Employee;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ScheduleRepository extends JpaRepository<Schedule, Long> {
+    String NONE = "com.udacity.jdnd.course3.critter.schedule.RecurrenceFrequency.NONE";
+
+    List<Schedule> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
     List<Schedule> findAllByPets_Id(long petId);
 
-    List<Schedule> findAllByEmployees_Id(long employeeId);
+    @Query("SELECT schedule FROM Schedule schedule INNER JOIN schedule.employees employee " +
+            "WHERE employee.id = :employeeId AND schedule.recurrence = " + NONE + " AND schedule.date BETWEEN :from AND :to " +
+            "ORDER BY schedule.date, schedule.id")
+    List<Schedule> findAllByEmployeeId(@Param("employeeId") long employeeId, @Param("from") LocalDate from, @Param("to") LocalDate to, Pageable pageable);
+
+    @Query("SELECT schedule FROM Schedule schedule INNER JOIN schedule.employees employee " +
+            "WHERE employee.id = :employeeId AND schedule.recurrence <> " + NONE + " " +
+            "AND schedule.date <= :to AND schedule.recurrenceEnd >= :from")
+    List<Schedule> findSeriesByEmployeeId(@Param("employeeId") long employeeId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("SELECT DISTINCT schedule FROM Schedule schedule INNER JOIN schedule.pets pet " +
+            "WHERE pet.customer.id = :customerId AND schedule.date <= :to " +
+            "AND (schedule.date >= :from OR schedule.recurrence <> " + NONE + " AND schedule.recurrenceEnd >= :from) " +
+            "ORDER BY schedule.date, schedule.id")
+    List<Schedule> findAllByCustomerId(@Param("customerId") long customerId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * A single (count, sum of ids, sum of versions) row over the employee's one-off schedules
+     * in [from, to] and the series overlapping it, the same rows the two queries above read.
+     */
+    @Query("SELECT COUNT(schedule), SUM(schedule.id), SUM(schedule.version) FROM Schedule schedule INNER JOIN schedule.employees employee " +
+            "WHERE employee.id = :employeeId AND schedule.date <= :to " +
+            "AND (schedule.date >= :from OR schedule.recurrence <> " + NONE + " AND schedule.recurrenceEnd >= :from)")
+    List<Object[]> summarizeVersionsByEmployeeId(@Param("employeeId") long employeeId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("SELECT employee.id, schedule.date FROM Schedule schedule INNER JOIN schedule.employees employee " +
+            "WHERE employee.id IN :employeeIds AND schedule.recurrence = " + NONE + " AND schedule.date IN :dates")
+    List<Object[]> findEmployeeBookings(@Param("employeeIds") Collection<Long> employeeIds, @Param("dates") Collection<LocalDate> dates);
+
+    @Query("SELECT pet.id, schedule.date FROM Schedule schedule INNER JOIN schedule.pets pet " +
+            "WHERE pet.id IN :petIds AND schedule.recurrence = " + NONE + " AND schedule.date IN :dates")
+    List<Object[]> findPetBookings(@Param("petIds") Collection<Long> petIds, @Param("dates") Collection<LocalDate> dates);
+
+    @Query("SELECT employee.id, schedule.id, schedule.date, schedule.recurrence, schedule.recurrenceEnd " +
+            "FROM Schedule schedule INNER JOIN schedule.employees employee " +
+            "WHERE employee.id IN :employeeIds AND schedule.recurrence <> " + NONE + " " +
+            "AND schedule.date <= :to AND schedule.recurrenceEnd >= :from")
+    List<Object[]> findEmployeeSeries(@Param("employeeIds") Collection<Long> employeeIds, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("SELECT pet.id, schedule.id, schedule.date, schedule.recurrence, schedule.recurrenceEnd " +
+            "FROM Schedule schedule INNER JOIN schedule.pets pet " +
+            "WHERE pet.id IN :petIds AND schedule.recurrence <> " + NONE + " " +
+            "AND schedule.date <= :to AND schedule.recurrenceEnd >= :from")
+    List<Object[]> findPetSeries(@Param("petIds") Collection<Long> petIds, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("SELECT employee.id, schedule.date FROM Schedule schedule INNER JOIN schedule.employees employee " +
+            "WHERE schedule.recurrence = " + NONE + " AND schedule.date BETWEEN :from AND :to")
+    List<Object[]> findEmployeeBookingsBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("SELECT employee.id, schedule.id, schedule.date, schedule.recurrence, schedule.recurrenceEnd " +
+            "FROM Schedule schedule INNER JOIN schedule.employees employee " +
+            "WHERE schedule.recurrence <> " + NONE + " AND schedule.date <= :to AND schedule.recurrenceEnd >= :from")
+    List<Object[]> findAllEmployeeSeries(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("SELECT schedule.id, pet.id FROM Schedule schedule INNER JOIN schedule.pets pet " +
+            "WHERE schedule.id IN :scheduleIds ORDER BY pet.id")
+    List<Object[]> findPetIds(@Param("scheduleIds") Collection<Long> scheduleIds);
+
+    @Query("SELECT schedule.id, employee.id FROM Schedule schedule INNER JOIN schedule.employees employee " +
+            "WHERE schedule.id IN :scheduleIds ORDER BY employee.id")
+    List<Object[]> findEmployeeIds(@Param("scheduleIds") Collection<Long> scheduleIds);
+
+    /**
+     * (schedule id, employee id, date, recurrence, recurrence end, activities) for every
+     * schedule of the employees, one row per schedule and employee.
+     */
+    @Query("SELECT schedule.id, employee.id, schedule.date, schedule.recurrence, schedule.recurrenceEnd, schedule.activities " +
+            "FROM Schedule schedule INNER JOIN schedule.employees employee WHERE employee.id IN :employeeIds")
+    List<Object[]> findEmployeeSchedules(@Param("employeeIds") Collection<Long> employeeIds);
 }
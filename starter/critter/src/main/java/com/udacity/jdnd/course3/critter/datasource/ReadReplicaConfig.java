@@ -0,0 +1,79 @@
+package com.udacity.jdnd.course3.critter.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Opt-in with {@code critter.datasource.replica.url}: read-only transactions then run on a
+ * replica pool configured under {@code critter.datasource.replica.*} (with its own
+ * {@code hikari.*} settings), while writes and everything outside a transaction stay on the
+ * {@code spring.datasource.*} primary.
+ * <p>
+ * Reads see the replica as it is, lag included. Anything that must read its own writes, like
+ * the conflict checks when booking, runs inside the writing transaction and so on the primary.
+ * <p>
+ * The two pools are deliberately not beans: the routing data source has to be the only one,
+ * or schema initialization and injection by type would pick a pool directly.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "critter.datasource.replica", name = "url")
+public class ReadReplicaConfig implements DisposableBean {
+    private final HikariDataSource primary;
+    private final HikariDataSource replica;
+
+    public ReadReplicaConfig(DataSourceProperties dataSourceProperties, Environment environment, ObjectProvider<MeterRegistry> meterRegistry) {
+        Binder binder = Binder.get(environment);
+        DataSourceProperties replicaProperties = binder.bind("critter.datasource.replica", DataSourceProperties.class)
+                .orElseGet(DataSourceProperties::new);
+        this.primary = pool("primary", dataSourceProperties, binder, "spring.datasource.hikari");
+        this.replica = pool("replica", replicaProperties, binder, "critter.datasource.replica.hikari");
+        meterRegistry.ifAvailable(registry -> {
+            primary.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+        });
+    }
+
+    @Bean
+    public DataSource dataSource() {
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primary, replica));
+    }
+
+    /**
+     * An open-in-view session would otherwise keep the first transaction's connection for the
+     * whole request, and with it that transaction's choice of pool.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionsAfterTransaction() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    @Override
+    public void destroy() {
+        primary.close();
+        replica.close();
+    }
+
+    private static HikariDataSource pool(String name, DataSourceProperties properties, Binder binder, String hikariPrefix) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        pool.setPoolName(name);
+        binder.bind(hikariPrefix, Bindable.ofInstance(pool));
+        return pool;
+    }
+}
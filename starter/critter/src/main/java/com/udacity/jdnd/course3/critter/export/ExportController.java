@@ -0,0 +1,45 @@
+package com.udacity.jdnd.course3.critter.export;
+
+import com.udacity.jdnd.course3.critter.common.NdjsonWriter;
+import com.udacity.jdnd.course3.critter.service.ExportService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Full-table exports as newline-delimited JSON. The body is written on an async request
+ * thread while rows are read, so memory use does not grow with the table.
+ */
+@RestController
+@RequestMapping(value = "/export", produces = NdjsonWriter.MEDIA_TYPE)
+public class ExportController {
+    private final ExportService exportService;
+
+    public ExportController(ExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    @GetMapping("/pets")
+    public ResponseEntity<StreamingResponseBody> exportPets() {
+        return ndjson(exportService::exportPets);
+    }
+
+    @GetMapping("/customers")
+    public ResponseEntity<StreamingResponseBody> exportCustomers() {
+        return ndjson(exportService::exportCustomers);
+    }
+
+    @GetMapping("/schedules")
+    public ResponseEntity<StreamingResponseBody> exportSchedules() {
+        return ndjson(exportService::exportSchedules);
+    }
+
+    private static ResponseEntity<StreamingResponseBody> ndjson(StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NdjsonWriter.MEDIA_TYPE))
+                .body(body);
+    }
+}
@@ -0,0 +1,30 @@
+package com.udacity.jdnd.course3.critter.idempotency;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import java.time.Instant;
+
+/**
+ * The response to a completed request, stored under its {@code Idempotency-Key} together
+ * with a fingerprint of the request so a retry can be told apart from a reused key.
+ */
+@Entity
+@Getter
+@Setter
+public class IdempotencyRecord {
+    @Id
+    @Column(name = "idempotency_key")
+    private String key;
+    @Column(nullable = false, length = 64)
+    private String fingerprint;
+    @Lob
+    @Column(nullable = false)
+    private String response;
+    @Column(nullable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,40 @@
+package com.udacity.jdnd.course3.critter.importer;
+
+import com.udacity.jdnd.course3.critter.common.NdjsonWriter;
+import com.udacity.jdnd.course3.critter.service.ImportService;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Bulk loads from newline-delimited JSON request bodies, e.g.
+ * {@code curl --data-binary @pets.ndjson -H 'Content-Type: application/x-ndjson'}. The body is
+ * read as a stream, so uploads are not buffered in memory.
+ */
+@RestController
+@RequestMapping(value = "/import", consumes = NdjsonWriter.MEDIA_TYPE)
+public class ImportController {
+    private final ImportService importService;
+
+    public ImportController(ImportService importService) {
+        this.importService = importService;
+    }
+
+    @PostMapping("/customers")
+    public ImportReport importCustomers(InputStream body) throws IOException {
+        return importService.importCustomers(body);
+    }
+
+    @PostMapping("/pets")
+    public ImportReport importPets(InputStream body) throws IOException {
+        return importService.importPets(body);
+    }
+
+    @PostMapping("/employees")
+    public ImportReport importEmployees(InputStream body) throws IOException {
+        return importService.importEmployees(body);
+    }
+}
@@ -0,0 +1,52 @@
+package com.udacity.jdnd.course3.critter.importer;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of one upload. Every non-blank line is counted as either imported or failed; only
+ * the first {@link #MAX_ERRORS} failures are listed so a bad file cannot blow up the response.
+ */
+@Getter
+public class ImportReport {
+    public static final int MAX_ERRORS = 1000;
+
+    private final String entity;
+    private long rows;
+    private long imported;
+    private long failed;
+    private long elapsedMillis;
+    private final List<ImportRowError> errors = new ArrayList<>();
+
+    public ImportReport(String entity) {
+        this.entity = entity;
+    }
+
+    public void rowRead() {
+        rows++;
+    }
+
+    public void imported(int count) {
+        imported += count;
+    }
+
+    public void fail(ImportRowError error) {
+        failed++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(error);
+        }
+    }
+
+    /**
+     * Unreadable rows are reported as they are read and invalid ones when their chunk is
+     * written, so errors are put back into line order at the end.
+     */
+    public void finish(long startNanos) {
+        errors.sort(Comparator.comparingLong(ImportRowError::getLine));
+        elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
@@ -0,0 +1,17 @@
+package com.udacity.jdnd.course3.critter.importer;
+
+import lombok.Getter;
+
+/**
+ * A rejected row, identified by its 1-based line number in the upload.
+ */
+@Getter
+public class ImportRowError {
+    private final long line;
+    private final String message;
+
+    public ImportRowError(long line, String message) {
+        this.line = line;
+        this.message = message;
+    }
+}
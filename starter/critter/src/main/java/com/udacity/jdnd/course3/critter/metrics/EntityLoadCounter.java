@@ -0,0 +1,29 @@
+package com.udacity.jdnd.course3.critter.metrics;
+
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Counts entities materialised into a persistence context for the current request, whether
+ * read from the database or assembled from the second-level cache.
+ */
+@Component
+public class EntityLoadCounter {
+
+    public EntityLoadCounter(EntityManagerFactory entityManagerFactory) {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImpl.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_LOAD, (PostLoadEventListener) event -> {
+            RequestStats stats = RequestStats.current();
+            if (stats != null) {
+                stats.entityLoaded();
+            }
+        });
+    }
+}
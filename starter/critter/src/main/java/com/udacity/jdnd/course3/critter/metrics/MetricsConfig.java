@@ -0,0 +1,25 @@
+package com.udacity.jdnd.course3.critter.metrics;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Registered ahead of other interceptors so requests they answer early, like 304s, are still measured.
+ */
+@Configuration
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class MetricsConfig implements WebMvcConfigurer {
+    private final RequestStatsInterceptor requestStatsInterceptor;
+
+    public MetricsConfig(RequestStatsInterceptor requestStatsInterceptor) {
+        this.requestStatsInterceptor = requestStatsInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(requestStatsInterceptor);
+    }
+}
@@ -0,0 +1,38 @@
+package com.udacity.jdnd.course3.critter.metrics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times every Spring Data repository method, including inherited ones such as
+ * {@code findById}, and charges the statements it ran to it. Names use the repository
+ * interface, not the interface that declares the method.
+ */
+@Aspect
+@Component
+public class RepositoryTimingAspect {
+
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        RequestStats stats = RequestStats.current();
+        if (stats == null) {
+            return joinPoint.proceed();
+        }
+        long statementsBefore = stats.getStatements();
+        long start = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            stats.repositoryCalled(nameOf(joinPoint), System.nanoTime() - start, stats.getStatements() - statementsBefore);
+        }
+    }
+
+    private static String nameOf(ProceedingJoinPoint joinPoint) {
+        Class<?>[] interfaces = AopProxyUtils.proxiedUserInterfaces(joinPoint.getThis());
+        Class<?> repository = interfaces.length > 0 ? interfaces[0] : joinPoint.getSignature().getDeclaringType();
+        return repository.getSimpleName() + "." + joinPoint.getSignature().getName();
+    }
+}
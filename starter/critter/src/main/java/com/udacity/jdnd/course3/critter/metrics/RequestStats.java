@@ -0,0 +1,119 @@
+package com.udacity.jdnd.course3.critter.metrics;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * SQL work done on behalf of one request. It is bound to whichever thread is currently running
+ * the request, so Hibernate listeners and the repository aspect can find it; outside a request
+ * nothing is bound and they record nothing.
+ */
+public class RequestStats {
+    private static final ThreadLocal<RequestStats> CURRENT = new ThreadLocal<>();
+
+    private final long startNanos = System.nanoTime();
+    private long statements;
+    private long entityLoads;
+    private long connectionWaitNanos;
+    private final Map<String, RepositoryCalls> repositoryCalls = new HashMap<>();
+
+    public static RequestStats current() {
+        return CURRENT.get();
+    }
+
+    public static void bind(RequestStats stats) {
+        CURRENT.set(stats);
+    }
+
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    void statementExecuted() {
+        statements++;
+    }
+
+    void entityLoaded() {
+        entityLoads++;
+    }
+
+    void connectionAcquired(long waitNanos) {
+        connectionWaitNanos += waitNanos;
+    }
+
+    void repositoryCalled(String name, long nanos, long statements) {
+        repositoryCalls.computeIfAbsent(name, n -> new RepositoryCalls(name)).add(nanos, statements);
+    }
+
+    public long getStatements() {
+        return statements;
+    }
+
+    public long getEntityLoads() {
+        return entityLoads;
+    }
+
+    public long getConnectionWaitNanos() {
+        return connectionWaitNanos;
+    }
+
+    public long getElapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    public Map<String, RepositoryCalls> getRepositoryCalls() {
+        return Collections.unmodifiableMap(repositoryCalls);
+    }
+
+    /**
+     * Repository methods ordered by the time spent in them, most first.
+     */
+    public List<RepositoryCalls> slowestRepositoryCalls(int limit) {
+        return repositoryCalls.values().stream()
+                .sorted(Comparator.comparingLong(RepositoryCalls::getNanos).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Calls to one repository method, e.g. {@code PetRepository.findByCustomerId}.
+     */
+    public static class RepositoryCalls {
+        private final String name;
+        private int calls;
+        private long nanos;
+        private long statements;
+
+        RepositoryCalls(String name) {
+            this.name = name;
+        }
+
+        void add(long nanos, long statements) {
+            this.calls++;
+            this.nanos += nanos;
+            this.statements += statements;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getCalls() {
+            return calls;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public long getStatements() {
+            return statements;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s x%d %d ms %d statements", name, calls, TimeUnit.NANOSECONDS.toMillis(nanos), statements);
+        }
+    }
+}
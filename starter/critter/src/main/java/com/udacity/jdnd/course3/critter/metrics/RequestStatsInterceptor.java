@@ -0,0 +1,116 @@
+package com.udacity.jdnd.course3.critter.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gives each controller call a {@link RequestStats} and publishes it when the request
+ * completes, tagged with the handler method:
+ * <ul>
+ *     <li>{@code critter.request.latency}, a timer with a percentile histogram</li>
+ *     <li>{@code critter.request.statements} and {@code critter.request.entity.loads}</li>
+ *     <li>{@code critter.request.connection.wait}, time spent waiting for pooled connections</li>
+ * </ul>
+ * Async requests carry the stats across threads as a request attribute and a callable
+ * interceptor, so work on the offloading executor or in streamed exports is still counted.
+ * Requests slower than {@code critter.metrics.slow-request-ms} are logged with the repository
+ * calls they spent the most time in.
+ */
+@Component
+public class RequestStatsInterceptor implements AsyncHandlerInterceptor {
+    private static final Logger log = LoggerFactory.getLogger(RequestStatsInterceptor.class);
+    private static final String ATTRIBUTE = RequestStatsInterceptor.class.getName() + ".stats";
+    private static final int SLOW_REQUEST_TOP_CALLS = 3;
+
+    private final MeterRegistry meterRegistry;
+    private final long slowRequestNanos;
+
+    public RequestStatsInterceptor(MeterRegistry meterRegistry, @Value("${critter.metrics.slow-request-ms:500}") long slowRequestMillis) {
+        this.meterRegistry = meterRegistry;
+        this.slowRequestNanos = TimeUnit.MILLISECONDS.toNanos(slowRequestMillis);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        RequestStats stats = (RequestStats) request.getAttribute(ATTRIBUTE);
+        if (stats == null) {
+            stats = new RequestStats();
+            request.setAttribute(ATTRIBUTE, stats);
+            WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(ATTRIBUTE, new StatsBindingInterceptor(stats));
+        }
+        RequestStats.bind(stats);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestStats.unbind();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestStats.unbind();
+        RequestStats stats = (RequestStats) request.getAttribute(ATTRIBUTE);
+        if (stats == null || !(handler instanceof HandlerMethod)) {
+            return;
+        }
+        HandlerMethod method = (HandlerMethod) handler;
+        String name = method.getBeanType().getSimpleName() + "." + method.getMethod().getName();
+        long elapsed = stats.getElapsedNanos();
+        Timer.builder("critter.request.latency").tag("handler", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("critter.request.statements").tag("handler", name)
+                .register(meterRegistry)
+                .record(stats.getStatements());
+        DistributionSummary.builder("critter.request.entity.loads").tag("handler", name)
+                .register(meterRegistry)
+                .record(stats.getEntityLoads());
+        Timer.builder("critter.request.connection.wait").tag("handler", name)
+                .register(meterRegistry)
+                .record(stats.getConnectionWaitNanos(), TimeUnit.NANOSECONDS);
+        if (elapsed >= slowRequestNanos) {
+            log.warn("Slow request {} {} handled by {} took {} ms: {} statements, {} entity loads, {} ms waiting for connections, top repository calls {}",
+                    request.getMethod(), request.getRequestURI(), name, TimeUnit.NANOSECONDS.toMillis(elapsed),
+                    stats.getStatements(), stats.getEntityLoads(), TimeUnit.NANOSECONDS.toMillis(stats.getConnectionWaitNanos()),
+                    stats.slowestRepositoryCalls(SLOW_REQUEST_TOP_CALLS));
+        }
+    }
+
+    private static class StatsBindingInterceptor implements CallableProcessingInterceptor {
+        private final RequestStats stats;
+
+        StatsBindingInterceptor(RequestStats stats) {
+            this.stats = stats;
+        }
+
+        @Override
+        public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+            RequestStats.bind(stats);
+        }
+
+        @Override
+        public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+            RequestStats.unbind();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.udacity.jdnd.course3.critter.metrics;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * Counts statements and connection waits into the current {@link RequestStats}. Registered
+ * through {@code hibernate.session.events.auto}, so Hibernate creates one per session; the
+ * request is looked up on every event because an open-in-view session can outlive the thread
+ * it was opened on.
+ */
+public class RequestStatsSessionListener extends BaseSessionEventListener {
+    private long acquisitionStart;
+
+    @Override
+    public void jdbcConnectionAcquisitionStart() {
+        acquisitionStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcConnectionAcquisitionEnd() {
+        RequestStats stats = RequestStats.current();
+        if (stats != null) {
+            stats.connectionAcquired(System.nanoTime() - acquisitionStart);
+        }
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        statementExecuted();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        statementExecuted();
+    }
+
+    private static void statementExecuted() {
+        RequestStats stats = RequestStats.current();
+        if (stats != null) {
+            stats.statementExecuted();
+        }
+    }
+}
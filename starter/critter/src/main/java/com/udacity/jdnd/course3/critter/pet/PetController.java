@@ -1,7 +1,8 @@
 package com.udacity.jdnd.course3.critter.pet;
 
+import com.udacity.jdnd.course3.critter.common.BlockingController;
+import com.udacity.jdnd.course3.critter.common.CursorPage;
 import com.udacity.jdnd.course3.critter.service.PetService;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.util.ObjectUtils;
 import org.springframework.web.bind.annotation.*;
@@ -11,13 +12,14 @@ import java.util.Objects;
 import java.util.stream.Collectors;
 
 @RestController
+@BlockingController
 @RequestMapping("/pet")
 public class PetController {
     private final PetService petService;
-    private final ModelMapper mapper;
+    private final PetMapper mapper;
 
     @Autowired
-    public PetController(PetService petService, ModelMapper mapper) {
+    public PetController(PetService petService, PetMapper mapper) {
         this.petService = petService;
         this.mapper = mapper;
     }
@@ -38,6 +40,14 @@ public class PetController {
     }
 
     @GetMapping
+    public CursorPage<PetDTO> getPets(@RequestParam(required = false) String cursor,
+                                      @RequestParam(required = false) Integer limit) {
+        int pageSize = CursorPage.limit(limit);
+        List<Pet> pets = petService.getPets(CursorPage.decode(cursor), pageSize + 1);
+        return CursorPage.of(pets, pageSize, Pet::getId, this::buildPetResponse);
+    }
+
+    @GetMapping(params = "unpaged=true")
     public List<PetDTO> getPets(){
         List<Pet> pets = petService.getPets();
         return pets.stream().map(this::buildPetResponse).collect(Collectors.toList());
@@ -50,9 +60,7 @@ public class PetController {
     }
 
     private PetDTO buildPetResponse(Pet pet) {
-        PetDTO response = mapper.map(pet, PetDTO.class);
-        response.setOwnerId(pet.getCustomer().getId());
-        return response;
+        return mapper.toDTO(pet);
     }
 
 }
@@ -0,0 +1,40 @@
+package com.udacity.jdnd.course3.critter.pet;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+/**
+ * Converts between {@link Pet} and {@link PetDTO} with plain field copies, no reflection.
+ */
+@Component
+public class PetMapper {
+
+    public PetDTO toDTO(Pet pet) {
+        PetDTO dto = new PetDTO();
+        dto.setId(pet.getId());
+        dto.setType(pet.getType());
+        dto.setName(pet.getName());
+        dto.setBirthDate(pet.getBirthDate());
+        dto.setNotes(pet.getNotes());
+        if (Objects.nonNull(pet.getCustomer())) {
+            dto.setOwnerId(pet.getCustomer().getId());
+        }
+        return dto;
+    }
+
+    /**
+     * Owner is not resolved here; callers attach the {@code Customer} themselves.
+     */
+    public Pet toEntity(PetDTO dto) {
+        Pet pet = new Pet();
+        if (dto.getId() != 0) {
+            pet.setId(dto.getId());
+        }
+        pet.setType(dto.getType());
+        pet.setName(dto.getName());
+        pet.setBirthDate(dto.getBirthDate());
+        pet.setNotes(dto.getNotes());
+        return pet;
+    }
+}
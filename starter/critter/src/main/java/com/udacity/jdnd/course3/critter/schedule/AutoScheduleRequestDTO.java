@@ -0,0 +1,20 @@
+package com.udacity.jdnd.course3.critter.schedule;
+
+import com.udacity.jdnd.course3.critter.user.EmployeeSkill;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A booking request without employees; the server picks employees covering the activities.
+ */
+@Getter
+@Setter
+public class AutoScheduleRequestDTO {
+    private List<Long> petIds;
+    private LocalDate date;
+    private Set<EmployeeSkill> activities;
+}
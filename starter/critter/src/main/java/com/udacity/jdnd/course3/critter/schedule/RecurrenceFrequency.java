@@ -0,0 +1,51 @@
+package com.udacity.jdnd.course3.critter.schedule;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * How often a schedule repeats between its date and its recurrence end.
+ */
+public enum RecurrenceFrequency {
+    NONE(ChronoUnit.DAYS, 0),
+    WEEKLY(ChronoUnit.WEEKS, 1),
+    BIWEEKLY(ChronoUnit.WEEKS, 2),
+    MONTHLY(ChronoUnit.MONTHS, 1);
+
+    private final ChronoUnit unit;
+    private final int step;
+
+    RecurrenceFrequency(ChronoUnit unit, int step) {
+        this.unit = unit;
+        this.step = step;
+    }
+
+    /**
+     * The n-th occurrence, always counted from the start so a monthly series started on the
+     * 31st comes back to the 31st after a short month.
+     */
+    public LocalDate occurrence(LocalDate start, long n) {
+        return this == NONE ? start : start.plus(n * step, unit);
+    }
+
+    /**
+     * Occurrences of a series running from start to end, both inclusive, that fall in [from, to].
+     */
+    public List<LocalDate> occurrences(LocalDate start, LocalDate end, LocalDate from, LocalDate to) {
+        if (this == NONE) {
+            return start.isBefore(from) || start.isAfter(to) ? Collections.emptyList() : Collections.singletonList(start);
+        }
+        LocalDate last = end.isAfter(to) ? to : end;
+        List<LocalDate> dates = new ArrayList<>();
+        long n = from.isAfter(start) ? unit.between(start, from) / step : 0;
+        for (LocalDate date = occurrence(start, n); !date.isAfter(last); date = occurrence(start, ++n)) {
+            if (!date.isBefore(from)) {
+                dates.add(date);
+            }
+        }
+        return dates;
+    }
+}
@@ -3,6 +3,7 @@ package com.udacity.jdnd.course3.critter.schedule;
 import com.udacity.jdnd.course3.critter.pet.Pet;
 import com.udacity.jdnd.course3.critter.user.Employee;
 import com.udacity.jdnd.course3.critter.user.EmployeeSkill;
+import com.udacity.jdnd.course3.critter.user.EmployeeSkillsConverter;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -15,25 +16,39 @@ import java.util.List;
 import java.util.Set;
 
 @Entity
+@Table(indexes = @Index(name = "idx_schedule_date", columnList = "date, id"))
 @Getter
 @Setter
 public class Schedule {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "schedule_seq")
+    @SequenceGenerator(name = "schedule_seq", sequenceName = "schedule_seq", allocationSize = 50)
     private long id;
     @ManyToMany
     @JoinTable(name = "employee_scheduled",
             joinColumns = @JoinColumn(name = "schedule_id"),
-            inverseJoinColumns = @JoinColumn(name = "employee_id"))
+            inverseJoinColumns = @JoinColumn(name = "employee_id"),
+            indexes = @Index(name = "idx_employee_scheduled_employee", columnList = "employee_id, schedule_id"))
     private List<Employee> employees = new ArrayList<>();
     @ManyToMany
     @JoinTable(name = "pet_scheduled",
             joinColumns = @JoinColumn(name = "schedule_id"),
-            inverseJoinColumns = @JoinColumn(name = "pet_id"))
+            inverseJoinColumns = @JoinColumn(name = "pet_id"),
+            indexes = @Index(name = "idx_pet_scheduled_pet", columnList = "pet_id, schedule_id"))
     private List<Pet> pets = new ArrayList<>();
     @Column
     private LocalDate date;
-    @ElementCollection(targetClass = EmployeeSkill.class)
     @Enumerated(EnumType.STRING)
+    @Column(nullable = false, columnDefinition = "varchar(16) default 'NONE'")
+    private RecurrenceFrequency recurrence = RecurrenceFrequency.NONE;
+    /**
+     * Last day a recurring schedule may occur on; null for one-off schedules.
+     */
+    @Column
+    private LocalDate recurrenceEnd;
+    @Version
+    private long version;
+    @Convert(converter = EmployeeSkillsConverter.class)
+    @Column(nullable = false, columnDefinition = "int default 0")
     private Set<EmployeeSkill> activities = new HashSet<>();
 }
@@ -0,0 +1,25 @@
+package com.udacity.jdnd.course3.critter.schedule;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * A booking would double-book an employee or pet, or an employee does not work that day.
+ * {@code petConflict} tells the two apart, since choosing other employees cannot resolve a
+ * pet that is already booked.
+ */
+@Getter
+@ResponseStatus(HttpStatus.CONFLICT)
+public class ScheduleConflictException extends RuntimeException {
+    private final boolean petConflict;
+
+    public ScheduleConflictException(String message) {
+        this(message, false);
+    }
+
+    public ScheduleConflictException(String message, boolean petConflict) {
+        super(message);
+        this.petConflict = petConflict;
+    }
+}
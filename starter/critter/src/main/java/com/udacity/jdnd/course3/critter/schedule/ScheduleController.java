@@ -1,23 +1,41 @@
 package com.udacity.jdnd.course3.critter.schedule;
 
-import com.udacity.jdnd.course3.critter.pet.Pet;
+import com.google.common.base.Joiner;
+import com.google.common.hash.Hashing;
+import com.udacity.jdnd.course3.critter.common.BlockingController;
+import com.udacity.jdnd.course3.critter.common.CursorPage;
+import com.udacity.jdnd.course3.critter.service.AssignmentService;
+import com.udacity.jdnd.course3.critter.service.IdempotencyService;
 import com.udacity.jdnd.course3.critter.service.ScheduleService;
-import com.udacity.jdnd.course3.critter.user.Employee;
-import org.modelmapper.ModelMapper;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.Comparator;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @RestController
+@BlockingController
 @RequestMapping("/schedule")
 public class ScheduleController {
+    public static final String TRUNCATED_HEADER = "X-Truncated";
+
     private final ScheduleService scheduleService;
-    private final ModelMapper mapper;
+    private final AssignmentService assignmentService;
+    private final IdempotencyService idempotencyService;
+    private final ScheduleMapper mapper;
 
-    public ScheduleController(ScheduleService scheduleService, ModelMapper mapper) {
+    public ScheduleController(ScheduleService scheduleService, AssignmentService assignmentService,
+                              IdempotencyService idempotencyService, ScheduleMapper mapper) {
         this.scheduleService = scheduleService;
+        this.assignmentService = assignmentService;
+        this.idempotencyService = idempotencyService;
         this.mapper = mapper;
     }
 
@@ -27,31 +45,104 @@ public class ScheduleController {
         return buildScheduleResponse(response);
     }
 
+    /**
+     * Retries of the same booking under the same {@code Idempotency-Key} get the original
+     * response back instead of booking again.
+     */
+    @PostMapping(headers = IdempotencyService.HEADER)
+    public ScheduleDTO createSchedule(@RequestHeader(IdempotencyService.HEADER) String idempotencyKey,
+                                      @RequestBody ScheduleDTO scheduleDTO) {
+        return idempotencyService.execute(idempotencyKey, fingerprint(scheduleDTO), ScheduleDTO.class,
+                () -> createSchedule(scheduleDTO));
+    }
+
+    @PostMapping("/batch")
+    public List<ScheduleDTO> createSchedules(@RequestBody List<ScheduleDTO> scheduleDTOs) {
+        return scheduleService.createSchedules(scheduleDTOs).stream().map(this::buildScheduleResponse).collect(Collectors.toList());
+    }
+
+    /**
+     * Books the pets with employees chosen by the server: the fewest free employees that
+     * cover the activities, preferring those with the fewest bookings that week.
+     */
+    @PostMapping("/auto")
+    public ScheduleDTO autoSchedule(@RequestBody AutoScheduleRequestDTO request) {
+        return buildScheduleResponse(assignmentService.autoSchedule(request));
+    }
+
+    /**
+     * Cancels or moves one occurrence of a recurring schedule.
+     */
+    @PutMapping("/{scheduleId}/overrides")
+    public ScheduleOverrideDTO overrideOccurrence(@PathVariable long scheduleId, @RequestBody ScheduleOverrideDTO override) {
+        return scheduleService.overrideOccurrence(scheduleId, override);
+    }
+
     @GetMapping
+    public CursorPage<ScheduleDTO> getSchedules(@RequestParam(required = false) String cursor,
+                                                @RequestParam(required = false) Integer limit) {
+        int pageSize = CursorPage.limit(limit);
+        List<ScheduleDTO> schedules = scheduleService.getSchedules(CursorPage.decode(cursor), pageSize + 1);
+        return CursorPage.of(schedules, pageSize, ScheduleDTO::getId, Function.identity());
+    }
+
+    @GetMapping(params = "unpaged=true")
     public List<ScheduleDTO> getAllSchedules() {
-        return scheduleService.getAllSchedule().stream().map(this::buildScheduleResponse).collect(Collectors.toList());
+        return scheduleService.getAllSchedule();
     }
 
     @GetMapping("/pet/{petId}")
     public List<ScheduleDTO> getScheduleForPet(@PathVariable long petId) {
-        return scheduleService.getScheduleForPet(petId).stream().map(this::buildScheduleResponse).collect(Collectors.toList());
+        return scheduleService.getScheduleForPet(petId);
     }
 
+    /**
+     * Occurrences in [from, to] ordered by date, at most {@code limit} of them and never more
+     * than {@value CursorPage#MAX_LIMIT}, which is also the default. Open bounds reach back to
+     * the employee's oldest booking, so a listing cut at the limit answers with
+     * {@value #TRUNCATED_HEADER}: true, and the client narrows the window with {@code from}.
+     */
     @GetMapping("/employee/{employeeId}")
-    public List<ScheduleDTO> getScheduleForEmployee(@PathVariable long employeeId) {
-        return scheduleService.getScheduleForEmployee(employeeId).stream()
-                .map(this::buildScheduleResponse).sorted(Comparator.comparing(ScheduleDTO::getDate)).collect(Collectors.toList());
+    public ResponseEntity<List<ScheduleDTO>> getScheduleForEmployee(@PathVariable long employeeId,
+                                                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                                    @RequestParam(required = false) Integer limit) {
+        int maxResults = Objects.isNull(limit) ? CursorPage.MAX_LIMIT : CursorPage.limit(limit);
+        // one row past the limit only signals that the listing was cut, as in CursorPage
+        List<ScheduleDTO> schedules = scheduleService.getScheduleForEmployee(employeeId, from, to, maxResults + 1);
+        if (schedules.size() <= maxResults) {
+            return ResponseEntity.ok(schedules);
+        }
+        return ResponseEntity.ok()
+                .header(TRUNCATED_HEADER, "true")
+                .body(new ArrayList<>(schedules.subList(0, maxResults)));
     }
 
     @GetMapping("/customer/{customerId}")
-    public List<ScheduleDTO> getScheduleForCustomer(@PathVariable long customerId) {
-        return scheduleService.getScheduleForCustomer(customerId).stream().map(this::buildScheduleResponse).collect(Collectors.toList());
+    public List<ScheduleDTO> getScheduleForCustomer(@PathVariable long customerId,
+                                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return scheduleService.getScheduleForCustomer(customerId, from, to);
     }
 
     private ScheduleDTO buildScheduleResponse(Schedule schedule) {
-        ScheduleDTO response = mapper.map(schedule, ScheduleDTO.class);
-        response.setPetIds(schedule.getPets().stream().map(Pet::getId).collect(Collectors.toList()));
-        response.setEmployeeIds(schedule.getEmployees().stream().map(Employee::getId).collect(Collectors.toList()));
-        return response;
+        return mapper.toDTO(schedule);
+    }
+
+    /**
+     * Hash of the booking as requested, with its collections sorted so it does not depend on
+     * the order a client or a set happens to list them in.
+     */
+    private static String fingerprint(ScheduleDTO scheduleDTO) {
+        String booking = Joiner.on('|').useForNull("").join("POST /schedule",
+                sorted(scheduleDTO.getEmployeeIds()), sorted(scheduleDTO.getPetIds()), scheduleDTO.getDate(),
+                Objects.isNull(scheduleDTO.getActivities()) ? null
+                        : sorted(scheduleDTO.getActivities().stream().map(Enum::name).collect(Collectors.toList())),
+                scheduleDTO.getRecurrence(), scheduleDTO.getRecurrenceEnd());
+        return Hashing.sha256().hashString(booking, StandardCharsets.UTF_8).toString();
+    }
+
+    private static <T extends Comparable<? super T>> List<T> sorted(Collection<T> values) {
+        return Objects.isNull(values) ? null : values.stream().sorted().collect(Collectors.toList());
     }
 }
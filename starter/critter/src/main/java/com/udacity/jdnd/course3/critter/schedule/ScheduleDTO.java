@@ -16,4 +16,6 @@ public class ScheduleDTO {
     private List<Long> petIds;
     private LocalDate date;
     private Set<EmployeeSkill> activities;
+    private RecurrenceFrequency recurrence;
+    private LocalDate recurrenceEnd;
 }
@@ -0,0 +1,87 @@
+package com.udacity.jdnd.course3.critter.schedule;
+
+import com.udacity.jdnd.course3.critter.pet.Pet;
+import com.udacity.jdnd.course3.critter.user.Employee;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Converts between {@link Schedule} and {@link ScheduleDTO} with plain field copies, no reflection.
+ */
+@Component
+public class ScheduleMapper {
+
+    public ScheduleDTO toDTO(Schedule schedule) {
+        ScheduleDTO dto = new ScheduleDTO();
+        dto.setId(schedule.getId());
+        dto.setDate(schedule.getDate());
+        dto.setActivities(Objects.isNull(schedule.getActivities()) ? null : new HashSet<>(schedule.getActivities()));
+        dto.setRecurrence(schedule.getRecurrence());
+        dto.setRecurrenceEnd(schedule.getRecurrenceEnd());
+        List<Long> petIds = new ArrayList<>(schedule.getPets().size());
+        for (Pet pet : schedule.getPets()) {
+            petIds.add(pet.getId());
+        }
+        dto.setPetIds(petIds);
+        List<Long> employeeIds = new ArrayList<>(schedule.getEmployees().size());
+        for (Employee employee : schedule.getEmployees()) {
+            employeeIds.add(employee.getId());
+        }
+        dto.setEmployeeIds(employeeIds);
+        return dto;
+    }
+
+    /**
+     * Builds the response from ids that were fetched separately, so none of the
+     * schedule's lazy associations are touched.
+     */
+    public ScheduleDTO toDTO(Schedule schedule, List<Long> petIds, List<Long> employeeIds) {
+        ScheduleDTO dto = new ScheduleDTO();
+        dto.setId(schedule.getId());
+        dto.setDate(schedule.getDate());
+        dto.setActivities(Objects.isNull(schedule.getActivities()) ? null : new HashSet<>(schedule.getActivities()));
+        dto.setRecurrence(schedule.getRecurrence());
+        dto.setRecurrenceEnd(schedule.getRecurrenceEnd());
+        dto.setPetIds(petIds);
+        dto.setEmployeeIds(employeeIds);
+        return dto;
+    }
+
+    /**
+     * One occurrence of a recurring schedule: a copy of the series with the occurrence's date.
+     */
+    public ScheduleDTO toOccurrence(ScheduleDTO series, LocalDate date) {
+        ScheduleDTO dto = new ScheduleDTO();
+        dto.setId(series.getId());
+        dto.setDate(date);
+        dto.setActivities(series.getActivities());
+        dto.setPetIds(series.getPetIds());
+        dto.setEmployeeIds(series.getEmployeeIds());
+        dto.setRecurrence(series.getRecurrence());
+        dto.setRecurrenceEnd(series.getRecurrenceEnd());
+        return dto;
+    }
+
+    /**
+     * Pets and employees are not resolved here; callers attach the entities themselves.
+     * Schedules are only ever created from a DTO, so any id it carries is ignored and the
+     * new schedule gets one from the sequence.
+     */
+    public Schedule toEntity(ScheduleDTO dto) {
+        Schedule schedule = new Schedule();
+        schedule.setDate(dto.getDate());
+        if (Objects.nonNull(dto.getRecurrence()) && dto.getRecurrence() != RecurrenceFrequency.NONE) {
+            schedule.setRecurrence(dto.getRecurrence());
+            schedule.setRecurrenceEnd(dto.getRecurrenceEnd());
+        }
+        if (Objects.nonNull(dto.getActivities())) {
+            schedule.setActivities(new HashSet<>(dto.getActivities()));
+        }
+        return schedule;
+    }
+}
@@ -0,0 +1,28 @@
+package com.udacity.jdnd.course3.critter.schedule;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * Moves or cancels one occurrence of a recurring {@link Schedule}. A null date means the
+ * occurrence on the original date is cancelled.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_schedule_override_occurrence", columnNames = {"schedule_id", "original_date"}))
+@Getter
+@Setter
+public class ScheduleOverride {
+    @Id
+    @GeneratedValue
+    private long id;
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "schedule_id")
+    private Schedule schedule;
+    @Column(name = "original_date", nullable = false)
+    private LocalDate originalDate;
+    @Column
+    private LocalDate date;
+}
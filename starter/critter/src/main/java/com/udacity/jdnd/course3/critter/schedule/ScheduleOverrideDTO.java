@@ -0,0 +1,17 @@
+package com.udacity.jdnd.course3.critter.schedule;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+/**
+ * Cancels the occurrence on {@code originalDate}, or moves it to {@code date}.
+ */
+@Getter
+@Setter
+public class ScheduleOverrideDTO {
+    private LocalDate originalDate;
+    private LocalDate date;
+    private boolean cancelled;
+}
@@ -0,0 +1,257 @@
+package com.udacity.jdnd.course3.critter.seed;
+
+import com.udacity.jdnd.course3.critter.pet.PetDTO;
+import com.udacity.jdnd.course3.critter.pet.PetType;
+import com.udacity.jdnd.course3.critter.schedule.ScheduleDTO;
+import com.udacity.jdnd.course3.critter.service.PetService;
+import com.udacity.jdnd.course3.critter.service.ScheduleService;
+import com.udacity.jdnd.course3.critter.service.UserService;
+import com.udacity.jdnd.course3.critter.user.CustomerDTO;
+import com.udacity.jdnd.course3.critter.user.EmployeeDTO;
+import com.udacity.jdnd.course3.critter.user.EmployeeSkill;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Fills an empty database with a synthetic data set through the regular services, once at
+ * startup under the {@code seed} profile, then keeps serving it. For example
+ * {@code --spring.profiles.active=seed --critter.seed.schedules=100000}; point
+ * {@code spring.datasource.url} at H2 or MySQL as usual. Sizes default to a large franchise:
+ * 50k customers, 200k pets, 5k employees and 5M schedules over ten years.
+ * <p>
+ * Popularity is skewed: the {@code i}-th of {@code n} owners, employees or pets is picked with
+ * {@code n * u^skew} for uniform {@code u}, so with the default skew of 2 the first tenth get
+ * about a third of all pets and bookings. Bookings never conflict: each day draws distinct
+ * employees who work that weekday and distinct pets. Everything derives from
+ * {@code critter.seed.random-seed}, so a run can be reproduced.
+ */
+@Component
+@Profile("seed")
+public class DataSeeder implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(DataSeeder.class);
+    private static final int WORK_DAYS = 5;
+    private static final int LOG_EVERY_CHUNKS = 100;
+
+    private final UserService userService;
+    private final PetService petService;
+    private final ScheduleService scheduleService;
+    private final TransactionTemplate transactionTemplate;
+    private final int customers;
+    private final int pets;
+    private final int employees;
+    private final int schedules;
+    private final int days;
+    private final LocalDate firstDay;
+    private final double skew;
+    private final long randomSeed;
+    private final int chunkSize;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public DataSeeder(UserService userService, PetService petService, ScheduleService scheduleService,
+                      PlatformTransactionManager transactionManager,
+                      @Value("${critter.seed.customers:50000}") int customers,
+                      @Value("${critter.seed.pets:200000}") int pets,
+                      @Value("${critter.seed.employees:5000}") int employees,
+                      @Value("${critter.seed.schedules:5000000}") int schedules,
+                      @Value("${critter.seed.days:3650}") int days,
+                      @Value("${critter.seed.first-day:2020-01-06}") String firstDay,
+                      @Value("${critter.seed.skew:2.0}") double skew,
+                      @Value("${critter.seed.random-seed:42}") long randomSeed,
+                      @Value("${critter.seed.chunk-size:1000}") int chunkSize) {
+        this.userService = userService;
+        this.petService = petService;
+        this.scheduleService = scheduleService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.customers = customers;
+        this.pets = pets;
+        this.employees = employees;
+        this.schedules = schedules;
+        this.days = days;
+        this.firstDay = LocalDate.parse(firstDay);
+        this.skew = skew;
+        this.randomSeed = randomSeed;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+        Random random = new Random(randomSeed);
+        long[] customerIds = seedCustomers();
+        long[] petIds = seedPets(random, customerIds);
+        List<List<EmployeeSkill>> skills = new ArrayList<>(employees);
+        int[] dayMasks = new int[employees];
+        long[] employeeIds = seedEmployees(random, skills, dayMasks);
+        seedSchedules(random, petIds, employeeIds, skills, dayMasks);
+        log.info("Seeding finished in {} s", (System.nanoTime() - start) / 1_000_000_000L);
+    }
+
+    private long[] seedCustomers() {
+        long[] ids = new long[customers];
+        inChunks("customers", customers, i -> {
+            CustomerDTO customer = new CustomerDTO();
+            customer.setName("customer" + i);
+            customer.setPhoneNumber(String.format("555-%07d", i));
+            ids[i] = userService.saveCustomer(customer).getId();
+        });
+        return ids;
+    }
+
+    private long[] seedPets(Random random, long[] customerIds) {
+        long[] ids = new long[pets];
+        inChunks("pets", pets, i -> {
+            PetDTO pet = new PetDTO();
+            pet.setName("pet" + i);
+            pet.setType(PetType.values()[random.nextInt(PetType.values().length)]);
+            pet.setBirthDate(firstDay.minusDays(random.nextInt(15 * 365)));
+            pet.setOwnerId(customerIds[skewed(random, customerIds.length)]);
+            ids[i] = petService.save(pet).getId();
+        });
+        return ids;
+    }
+
+    private long[] seedEmployees(Random random, List<List<EmployeeSkill>> skills, int[] dayMasks) {
+        long[] ids = new long[employees];
+        inChunks("employees", employees, i -> {
+            List<EmployeeSkill> employeeSkills = new ArrayList<>();
+            for (EmployeeSkill skill : EmployeeSkill.values()) {
+                if (random.nextBoolean()) {
+                    employeeSkills.add(skill);
+                }
+            }
+            if (employeeSkills.isEmpty()) {
+                employeeSkills.add(EmployeeSkill.values()[random.nextInt(EmployeeSkill.values().length)]);
+            }
+            List<DayOfWeek> week = new ArrayList<>(Arrays.asList(DayOfWeek.values()));
+            Collections.shuffle(week, random);
+            Set<DayOfWeek> workDays = EnumSet.copyOf(week.subList(0, WORK_DAYS));
+            for (DayOfWeek day : workDays) {
+                dayMasks[i] |= 1 << day.ordinal();
+            }
+            skills.add(employeeSkills);
+
+            EmployeeDTO employee = new EmployeeDTO();
+            employee.setName("employee" + i);
+            employee.setSkills(EnumSet.copyOf(employeeSkills));
+            employee.setDaysAvailable(workDays);
+            ids[i] = userService.saveEmployee(employee).getId();
+        });
+        return ids;
+    }
+
+    /**
+     * Schedules are spread evenly over the days and sent through the batch booking path
+     * {@code chunkSize} at a time, each chunk in its own transaction.
+     */
+    private void seedSchedules(Random random, long[] petIds, long[] employeeIds, List<List<EmployeeSkill>> skills, int[] dayMasks) {
+        int perDay = (int) Math.ceil((double) schedules / days);
+        checkCapacity(perDay, petIds.length, dayMasks);
+        List<ScheduleDTO> chunk = new ArrayList<>(chunkSize);
+        int created = 0;
+        int chunks = 0;
+        for (int d = 0; created < schedules; d++) {
+            LocalDate date = firstDay.plusDays(d);
+            int dayBit = 1 << date.getDayOfWeek().ordinal();
+            BitSet bookedEmployees = new BitSet(employeeIds.length);
+            BitSet bookedPets = new BitSet(petIds.length);
+            for (int k = 0; k < perDay && created < schedules; k++, created++) {
+                int e = pick(random, employeeIds.length, i -> (dayMasks[i] & dayBit) != 0 && !bookedEmployees.get(i));
+                int p = pick(random, petIds.length, i -> !bookedPets.get(i));
+                bookedEmployees.set(e);
+                bookedPets.set(p);
+                List<EmployeeSkill> employeeSkills = skills.get(e);
+
+                ScheduleDTO schedule = new ScheduleDTO();
+                schedule.setDate(date);
+                schedule.setEmployeeIds(Collections.singletonList(employeeIds[e]));
+                schedule.setPetIds(Collections.singletonList(petIds[p]));
+                schedule.setActivities(EnumSet.of(employeeSkills.get(random.nextInt(employeeSkills.size()))));
+                chunk.add(schedule);
+                if (chunk.size() == chunkSize) {
+                    scheduleService.createSchedules(chunk);
+                    chunk = new ArrayList<>(chunkSize);
+                    if (++chunks % LOG_EVERY_CHUNKS == 0) {
+                        log.info("Seeded {} of {} schedules", created + 1, schedules);
+                    }
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            scheduleService.createSchedules(chunk);
+        }
+        log.info("Seeded {} schedules", schedules);
+    }
+
+    /**
+     * Every day must be able to find {@code perDay} distinct free employees and pets.
+     */
+    private void checkCapacity(int perDay, int petCount, int[] dayMasks) {
+        for (DayOfWeek day : DayOfWeek.values()) {
+            int working = 0;
+            for (int mask : dayMasks) {
+                if ((mask & (1 << day.ordinal())) != 0) {
+                    working++;
+                }
+            }
+            if (working < perDay || petCount < perDay) {
+                throw new IllegalStateException(String.format(
+                        "%d schedules a day need more than %d employees working on %s and %d pets; raise critter.seed.days",
+                        perDay, working, day, petCount));
+            }
+        }
+    }
+
+    private void inChunks(String what, int count, IntConsumer row) {
+        for (int start = 0, chunk = 1; start < count; start += chunkSize, chunk++) {
+            int from = start;
+            int to = Math.min(count, start + chunkSize);
+            transactionTemplate.execute(status -> {
+                for (int i = from; i < to; i++) {
+                    row.accept(i);
+                }
+                entityManager.flush();
+                entityManager.clear();
+                return null;
+            });
+            if (chunk % LOG_EVERY_CHUNKS == 0 || to == count) {
+                log.info("Seeded {} of {} {}", to, count, what);
+            }
+        }
+    }
+
+    private int skewed(Random random, int n) {
+        return Math.min(n - 1, (int) (n * Math.pow(random.nextDouble(), skew)));
+    }
+
+    /**
+     * Draws a skewed index and probes forward to the next one that is still free, which
+     * keeps the skew while guaranteeing progress.
+     */
+    private int pick(Random random, int n, IntPredicate free) {
+        int start = skewed(random, n);
+        for (int i = 0; i < n; i++) {
+            int candidate = (start + i) % n;
+            if (free.test(candidate)) {
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("No free candidate left");
+    }
+}
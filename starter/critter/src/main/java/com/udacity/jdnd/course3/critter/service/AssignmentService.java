@@ -0,0 +1,21 @@
+package com.udacity.jdnd.course3.critter.service;
+
+import com.udacity.jdnd.course3.critter.schedule.AutoScheduleRequestDTO;
+import com.udacity.jdnd.course3.critter.schedule.Schedule;
+import com.udacity.jdnd.course3.critter.user.EmployeeSkill;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Picks employees for a booking from the in-memory availability index and booking counts.
+ */
+public interface AssignmentService {
+    /**
+     * The smallest set of employees free on the date that together have all the activities,
+     * preferring the least booked employees that week. Empty if no such set exists.
+     */
+    List<Long> chooseEmployees(LocalDate date, Set<EmployeeSkill> activities);
+    Schedule autoSchedule(AutoScheduleRequestDTO request);
+}
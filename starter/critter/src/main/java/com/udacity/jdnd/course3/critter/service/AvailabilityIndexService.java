@@ -0,0 +1,29 @@
+package com.udacity.jdnd.course3.critter.service;
+
+import com.udacity.jdnd.course3.critter.user.EmployeeSkill;
+
+import java.time.DayOfWeek;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory index of which employees work on which day with which skills. Auto-scheduling
+ * ranks its candidates from it without touching the employee table; the availability search
+ * is a single bitmask query on the employee rows instead.
+ * <p>
+ * The index is per JVM: it is loaded at startup and then follows only the changes made
+ * through this instance, rolled back again with their transaction. With several instances it
+ * can miss employees saved elsewhere, so it only proposes candidates; booking checks read
+ * working days from the employee rows.
+ */
+public interface AvailabilityIndexService {
+    void index(long employeeId, Set<EmployeeSkill> skills, Set<DayOfWeek> daysAvailable);
+    void updateDays(long employeeId, Set<DayOfWeek> daysAvailable);
+
+    /**
+     * Employees working on the day who have at least one of the skills, mapped to the subset
+     * of those skills they have as a mask of {@code 1 << skill.ordinal()} bits.
+     */
+    Map<Long, Integer> findSkillCoverage(DayOfWeek day, Set<EmployeeSkill> skills);
+    void rebuild();
+}
@@ -0,0 +1,24 @@
+package com.udacity.jdnd.course3.critter.service;
+
+import com.udacity.jdnd.course3.critter.schedule.ScheduleDTO;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cached per-week booking counts for employees, used to spread automatic assignments.
+ * The counts are a hint only; the booking conflict check stays authoritative.
+ */
+public interface BookingCountService {
+    /**
+     * Bookings per employee in the Monday to Sunday week containing the date.
+     */
+    Map<Long, Integer> countsForWeekOf(LocalDate date);
+    Set<Long> bookedOn(LocalDate date);
+    void recordAfterCommit(List<ScheduleDTO> bookings);
+    void invalidate(LocalDate date);
+    void invalidateAfterCommit(Collection<LocalDate> dates);
+}
@@ -0,0 +1,9 @@
+package com.udacity.jdnd.course3.critter.service;
+
+import com.udacity.jdnd.course3.critter.cache.CacheRegionStatsDTO;
+
+import java.util.List;
+
+public interface CacheStatsService {
+    List<CacheRegionStatsDTO> getRegionStats();
+}
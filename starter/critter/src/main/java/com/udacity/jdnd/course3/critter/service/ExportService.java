@@ -0,0 +1,14 @@
+package com.udacity.jdnd.course3.critter.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes whole tables as newline-delimited JSON without holding them in memory. Each method
+ * returns the number of rows written.
+ */
+public interface ExportService {
+    long exportPets(OutputStream out) throws IOException;
+    long exportCustomers(OutputStream out) throws IOException;
+    long exportSchedules(OutputStream out) throws IOException;
+}
@@ -0,0 +1,19 @@
+package com.udacity.jdnd.course3.critter.service;
+
+import java.util.function.Supplier;
+
+/**
+ * Runs a request at most once per {@code Idempotency-Key}. Retries with the same key and the
+ * same request get the first response back; concurrent ones wait for it. Failed requests are
+ * not remembered, so they can be retried.
+ */
+public interface IdempotencyService {
+    String HEADER = "Idempotency-Key";
+
+    /**
+     * @param fingerprint identifies the request, a different one under a known key is
+     *                    rejected with 422 Unprocessable Entity
+     * @param type        what the action returns, used to read a stored response back
+     */
+    <T> T execute(String key, String fingerprint, Class<T> type, Supplier<T> action);
+}
@@ -0,0 +1,18 @@
+package com.udacity.jdnd.course3.critter.service;
+
+import com.udacity.jdnd.course3.critter.importer.ImportReport;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Loads newline-delimited JSON uploads, one DTO per line, in the same shape the exports
+ * write. Ids in the upload are ignored and new ones assigned; bad rows are reported and
+ * skipped rather than failing the whole load. A pet's {@code ownerId} may be the id a customer
+ * had in an earlier customers upload, so exports load in order customers, then pets.
+ */
+public interface ImportService {
+    ImportReport importCustomers(InputStream in) throws IOException;
+    ImportReport importPets(InputStream in) throws IOException;
+    ImportReport importEmployees(InputStream in) throws IOException;
+}
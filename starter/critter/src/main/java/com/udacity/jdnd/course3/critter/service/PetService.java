@@ -9,5 +9,8 @@ public interface PetService {
     Pet save(PetDTO p);
     Pet getPet(long id);
     List<Pet> getPets();
+    List<Pet> getPets(long afterId, int limit);
     List<Pet> getPetsByOwner(long ownerId);
+    String getPetETag(long id);
+    String getPetsByOwnerETag(long ownerId);
 }
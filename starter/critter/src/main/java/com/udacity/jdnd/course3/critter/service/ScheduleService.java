@@ -2,13 +2,19 @@ package com.udacity.jdnd.course3.critter.service;
 
 import com.udacity.jdnd.course3.critter.schedule.Schedule;
 import com.udacity.jdnd.course3.critter.schedule.ScheduleDTO;
+import com.udacity.jdnd.course3.critter.schedule.ScheduleOverrideDTO;
 
+import java.time.LocalDate;
 import java.util.List;
 
 public interface ScheduleService {
     Schedule createSchedule(ScheduleDTO scheduleDTO);
-    List<Schedule> getAllSchedule();
-    List<Schedule> getScheduleForPet(long petId);
-    List<Schedule> getScheduleForEmployee(long employeeId);
-    List<Schedule> getScheduleForCustomer(long customerId);
+    List<Schedule> createSchedules(List<ScheduleDTO> scheduleDTOs);
+    List<ScheduleDTO> getAllSchedule();
+    List<ScheduleDTO> getSchedules(long afterId, int limit);
+    List<ScheduleDTO> getScheduleForPet(long petId);
+    List<ScheduleDTO> getScheduleForEmployee(long employeeId, LocalDate from, LocalDate to, int limit);
+    String getScheduleForEmployeeETag(long employeeId, LocalDate from, LocalDate to);
+    List<ScheduleDTO> getScheduleForCustomer(long customerId, LocalDate from, LocalDate to);
+    ScheduleOverrideDTO overrideOccurrence(long scheduleId, ScheduleOverrideDTO override);
 }
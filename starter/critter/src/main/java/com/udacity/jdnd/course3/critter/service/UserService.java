@@ -8,8 +8,9 @@ import java.util.Set;
 
 public interface UserService {
     Customer saveCustomer(CustomerDTO customer);
-    List<Customer> getAllCustomer();
-    Customer getOwnerByPet(long petId);
+    List<CustomerDTO> getAllCustomer();
+    List<CustomerDTO> getCustomers(long afterId, int limit);
+    CustomerDTO getOwnerByPet(long petId);
     Employee saveEmployee(EmployeeDTO employee);
     Employee getEmployee(long employeeId);
     void setAvailability(Set<DayOfWeek> daysAvailable, long employeeId);
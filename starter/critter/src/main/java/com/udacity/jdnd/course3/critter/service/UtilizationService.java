@@ -0,0 +1,33 @@
+package com.udacity.jdnd.course3.critter.service;
+
+import com.udacity.jdnd.course3.critter.schedule.ScheduleDTO;
+import com.udacity.jdnd.course3.critter.user.EmployeeSkill;
+import com.udacity.jdnd.course3.critter.utilization.DailyUtilizationDTO;
+import com.udacity.jdnd.course3.critter.utilization.EmployeeUtilizationDTO;
+import com.udacity.jdnd.course3.critter.utilization.RollupRebuildReport;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Per employee, date and activity booking counts, maintained as bookings change. Bookings
+ * without activities are not counted.
+ */
+public interface UtilizationService {
+    /**
+     * Counts every occurrence of new bookings, in the caller's transaction.
+     */
+    void recordBookings(List<ScheduleDTO> bookings);
+
+    /**
+     * Moves one occurrence of a series from one date to another; a null date means the
+     * occurrence did not exist before or no longer exists after.
+     */
+    void recordMove(Collection<Long> employeeIds, Set<EmployeeSkill> activities, LocalDate from, LocalDate to);
+
+    EmployeeUtilizationDTO getEmployeeUtilization(long employeeId, LocalDate from, LocalDate to);
+    List<DailyUtilizationDTO> getDailyUtilization(LocalDate from, LocalDate to, EmployeeSkill activity);
+    RollupRebuildReport rebuild();
+}
@@ -0,0 +1,135 @@
+package com.udacity.jdnd.course3.critter.service.impl;
+
+import com.udacity.jdnd.course3.critter.schedule.AutoScheduleRequestDTO;
+import com.udacity.jdnd.course3.critter.schedule.Schedule;
+import com.udacity.jdnd.course3.critter.schedule.ScheduleConflictException;
+import com.udacity.jdnd.course3.critter.schedule.ScheduleDTO;
+import com.udacity.jdnd.course3.critter.service.AssignmentService;
+import com.udacity.jdnd.course3.critter.service.AvailabilityIndexService;
+import com.udacity.jdnd.course3.critter.service.BookingCountService;
+import com.udacity.jdnd.course3.critter.service.ScheduleService;
+import com.udacity.jdnd.course3.critter.user.EmployeeSkill;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Employees are grouped by which of the requested skills they have. There are at most
+ * {@code 2^skills} groups, so the minimum cover is found exactly with a dynamic program over
+ * skill masks, taking the least booked employee of each group. Cost is linear in the number
+ * of employees working that day.
+ *
+ * Not transactional: every booking attempt runs in its own transaction, so an employee
+ * conflict caused by a concurrent booking can be retried with a fresh view of the week.
+ */
+@Service
+public class AssignmentServiceImpl implements AssignmentService {
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final AvailabilityIndexService availabilityIndex;
+    private final BookingCountService bookingCounts;
+    private final ScheduleService scheduleService;
+
+    public AssignmentServiceImpl(AvailabilityIndexService availabilityIndex, BookingCountService bookingCounts, ScheduleService scheduleService) {
+        this.availabilityIndex = availabilityIndex;
+        this.bookingCounts = bookingCounts;
+        this.scheduleService = scheduleService;
+    }
+
+    @Override
+    public List<Long> chooseEmployees(LocalDate date, Set<EmployeeSkill> activities) {
+        int required = 0;
+        for (EmployeeSkill skill : activities) {
+            required |= 1 << skill.ordinal();
+        }
+        if (required == 0) {
+            return Collections.emptyList();
+        }
+        Map<Long, Integer> counts = bookingCounts.countsForWeekOf(date);
+        Set<Long> booked = bookingCounts.bookedOn(date);
+
+        // least booked employee per skill group, lowest id on ties
+        int groups = Integer.highestOneBit(required) << 1;
+        long[] bestId = new long[groups];
+        int[] bestLoad = new int[groups];
+        Arrays.fill(bestLoad, Integer.MAX_VALUE);
+        for (Map.Entry<Long, Integer> candidate : availabilityIndex.findSkillCoverage(date.getDayOfWeek(), activities).entrySet()) {
+            long id = candidate.getKey();
+            if (booked.contains(id)) {
+                continue;
+            }
+            int group = candidate.getValue();
+            int load = counts.getOrDefault(id, 0);
+            if (load < bestLoad[group] || (load == bestLoad[group] && id < bestId[group])) {
+                bestLoad[group] = load;
+                bestId[group] = id;
+            }
+        }
+
+        // size[covered] = fewest employees covering the mask, load[covered] breaks ties
+        int[] size = new int[groups];
+        long[] load = new long[groups];
+        int[] previous = new int[groups];
+        int[] via = new int[groups];
+        Arrays.fill(size, Integer.MAX_VALUE);
+        size[0] = 0;
+        for (int covered = 0; covered < groups; covered++) {
+            if (size[covered] == Integer.MAX_VALUE) {
+                continue;
+            }
+            for (int group = 1; group < groups; group++) {
+                if (bestLoad[group] == Integer.MAX_VALUE || (group & ~covered) == 0) {
+                    continue;
+                }
+                int next = covered | group;
+                int nextSize = size[covered] + 1;
+                long nextLoad = load[covered] + bestLoad[group];
+                if (nextSize < size[next] || (nextSize == size[next] && nextLoad < load[next])) {
+                    size[next] = nextSize;
+                    load[next] = nextLoad;
+                    previous[next] = covered;
+                    via[next] = group;
+                }
+            }
+        }
+        if (size[required] == Integer.MAX_VALUE) {
+            return Collections.emptyList();
+        }
+        List<Long> chosen = new ArrayList<>(size[required]);
+        for (int covered = required; covered != 0; covered = previous[covered]) {
+            chosen.add(bestId[via[covered]]);
+        }
+        Collections.sort(chosen);
+        return chosen;
+    }
+
+    @Override
+    public Schedule autoSchedule(AutoScheduleRequestDTO request) {
+        if (request.getActivities() == null || request.getActivities().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At least one activity is required");
+        }
+        for (int attempt = 1; ; attempt++) {
+            List<Long> employeeIds = chooseEmployees(request.getDate(), request.getActivities());
+            if (employeeIds.isEmpty()) {
+                throw new ScheduleConflictException("No available employees cover " + request.getActivities() + " on " + request.getDate());
+            }
+            ScheduleDTO scheduleDTO = new ScheduleDTO();
+            scheduleDTO.setPetIds(request.getPetIds());
+            scheduleDTO.setEmployeeIds(employeeIds);
+            scheduleDTO.setDate(request.getDate());
+            scheduleDTO.setActivities(request.getActivities());
+            try {
+                return scheduleService.createSchedule(scheduleDTO);
+            } catch (ScheduleConflictException e) {
+                // another choice of employees cannot free a pet that is already booked
+                if (e.isPetConflict() || attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+                bookingCounts.invalidate(request.getDate());
+            }
+        }
+    }
+}
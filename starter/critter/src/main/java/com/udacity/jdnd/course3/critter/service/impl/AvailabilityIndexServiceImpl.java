@@ -0,0 +1,193 @@
+package com.udacity.jdnd.course3.critter.service.impl;
+
+import com.udacity.jdnd.course3.critter.dao.EmployeeRepository;
+import com.udacity.jdnd.course3.critter.service.AvailabilityIndexService;
+import com.udacity.jdnd.course3.critter.user.EmployeeSkill;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.time.DayOfWeek;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps one {@link BitSet} per (day, skill) pair, where each bit is an employee slot.
+ * Skill coverage walks the bitsets of the requested skills for the requested day.
+ */
+@Service
+public class AvailabilityIndexServiceImpl implements AvailabilityIndexService {
+    private static final int DAYS = DayOfWeek.values().length;
+    private static final EmployeeSkill[] SKILLS = EmployeeSkill.values();
+
+    private final EmployeeRepository employeeRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private BitSet[][] byDayAndSkill;
+    private Map<Long, Integer> slots;
+    private long[] employeeIds;
+    private int[] skillMasks;
+    private int[] dayMasks;
+
+    public AvailabilityIndexServiceImpl(EmployeeRepository employeeRepository) {
+        this.employeeRepository = employeeRepository;
+        clear();
+    }
+
+    @PostConstruct
+    @Override
+    public void rebuild() {
+        List<Object[]> rows = employeeRepository.findAllSkillsAndDays();
+        rows.sort(Comparator.comparing(row -> (Long) row[0]));
+
+        lock.writeLock().lock();
+        try {
+            clear();
+            for (Object[] row : rows) {
+                @SuppressWarnings("unchecked")
+                Set<EmployeeSkill> skills = (Set<EmployeeSkill>) row[1];
+                @SuppressWarnings("unchecked")
+                Set<DayOfWeek> days = (Set<DayOfWeek>) row[2];
+                write(slotFor((Long) row[0]), skillMask(skills), dayMask(days));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(long employeeId, Set<EmployeeSkill> skills, Set<DayOfWeek> daysAvailable) {
+        int skillMask = skillMask(skills);
+        int dayMask = dayMask(daysAvailable);
+        lock.writeLock().lock();
+        try {
+            int slot = slotFor(employeeId);
+            undoOnRollback(employeeId, skillMasks[slot], dayMasks[slot]);
+            write(slot, skillMask, dayMask);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateDays(long employeeId, Set<DayOfWeek> daysAvailable) {
+        int dayMask = dayMask(daysAvailable);
+        lock.writeLock().lock();
+        try {
+            int slot = slotFor(employeeId);
+            undoOnRollback(employeeId, skillMasks[slot], dayMasks[slot]);
+            write(slot, skillMasks[slot], dayMask);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<Long, Integer> findSkillCoverage(DayOfWeek day, Set<EmployeeSkill> skills) {
+        lock.readLock().lock();
+        try {
+            Map<Long, Integer> coverage = new HashMap<>();
+            for (EmployeeSkill skill : skills) {
+                BitSet withSkill = byDayAndSkill[day.ordinal()][skill.ordinal()];
+                for (int slot = withSkill.nextSetBit(0); slot >= 0; slot = withSkill.nextSetBit(slot + 1)) {
+                    coverage.merge(employeeIds[slot], bit(skill), (a, b) -> a | b);
+                }
+            }
+            return coverage;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Changes are visible to the writing transaction straight away; if it rolls back, every
+     * employee it touched goes back to the masks it had before the transaction, which are
+     * zero for a new employee.
+     */
+    private void undoOnRollback(long employeeId, int skillMask, int dayMask) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Map<Long, int[]> originals = (Map<Long, int[]>) TransactionSynchronizationManager.getResource(this);
+        if (originals == null) {
+            Map<Long, int[]> touched = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(this, touched);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(AvailabilityIndexServiceImpl.this);
+                    if (status != STATUS_ROLLED_BACK) {
+                        return;
+                    }
+                    lock.writeLock().lock();
+                    try {
+                        touched.forEach((id, masks) -> write(slotFor(id), masks[0], masks[1]));
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                }
+            });
+            originals = touched;
+        }
+        originals.putIfAbsent(employeeId, new int[]{skillMask, dayMask});
+    }
+
+    private void clear() {
+        byDayAndSkill = new BitSet[DAYS][SKILLS.length];
+        for (int d = 0; d < DAYS; d++) {
+            for (int s = 0; s < SKILLS.length; s++) {
+                byDayAndSkill[d][s] = new BitSet();
+            }
+        }
+        slots = new HashMap<>();
+        employeeIds = new long[64];
+        skillMasks = new int[64];
+        dayMasks = new int[64];
+    }
+
+    private int slotFor(long employeeId) {
+        Integer slot = slots.get(employeeId);
+        if (slot != null) {
+            return slot;
+        }
+        int newSlot = slots.size();
+        if (newSlot == employeeIds.length) {
+            employeeIds = Arrays.copyOf(employeeIds, newSlot * 2);
+            skillMasks = Arrays.copyOf(skillMasks, newSlot * 2);
+            dayMasks = Arrays.copyOf(dayMasks, newSlot * 2);
+        }
+        employeeIds[newSlot] = employeeId;
+        slots.put(employeeId, newSlot);
+        return newSlot;
+    }
+
+    private void write(int slot, int skillMask, int dayMask) {
+        skillMasks[slot] = skillMask;
+        dayMasks[slot] = dayMask;
+        for (int d = 0; d < DAYS; d++) {
+            boolean works = (dayMask & (1 << d)) != 0;
+            for (int s = 0; s < SKILLS.length; s++) {
+                byDayAndSkill[d][s].set(slot, works && (skillMask & (1 << s)) != 0);
+            }
+        }
+    }
+
+    private static int skillMask(Set<EmployeeSkill> skills) {
+        return skills == null ? 0 : skills.stream().mapToInt(AvailabilityIndexServiceImpl::bit).reduce(0, (a, b) -> a | b);
+    }
+
+    private static int dayMask(Set<DayOfWeek> days) {
+        return days == null ? 0 : days.stream().mapToInt(AvailabilityIndexServiceImpl::bit).reduce(0, (a, b) -> a | b);
+    }
+
+    private static int bit(EmployeeSkill skill) {
+        return 1 << skill.ordinal();
+    }
+
+    private static int bit(DayOfWeek day) {
+        return 1 << day.ordinal();
+    }
+}
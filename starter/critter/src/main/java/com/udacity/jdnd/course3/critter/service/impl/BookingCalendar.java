@@ -0,0 +1,170 @@
+package com.udacity.jdnd.course3.critter.service.impl;
+
+import com.google.common.collect.Lists;
+import com.udacity.jdnd.course3.critter.dao.ScheduleOverrideRepository;
+import com.udacity.jdnd.course3.critter.dao.ScheduleRepository;
+import com.udacity.jdnd.course3.critter.schedule.RecurrenceFrequency;
+import com.udacity.jdnd.course3.critter.schedule.ScheduleDTO;
+import com.udacity.jdnd.course3.critter.schedule.ScheduleMapper;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Answers who is booked on which dates, counting one-off schedules as stored and expanding
+ * recurring schedules with their overrides on the fly. Recurring schedules are a single row
+ * however many times they occur.
+ */
+@Component
+public class BookingCalendar {
+    private static final int IN_CLAUSE_LIMIT = 1000;
+
+    private final ScheduleRepository scheduleRepository;
+    private final ScheduleOverrideRepository overrideRepository;
+    private final ScheduleMapper mapper;
+
+    public BookingCalendar(ScheduleRepository scheduleRepository, ScheduleOverrideRepository overrideRepository, ScheduleMapper mapper) {
+        this.scheduleRepository = scheduleRepository;
+        this.overrideRepository = overrideRepository;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Every date a booking occurs on, ignoring overrides since a new booking has none yet.
+     */
+    public List<LocalDate> occurrences(ScheduleDTO booking) {
+        RecurrenceFrequency recurrence = recurrenceOf(booking);
+        LocalDate end = recurrence == RecurrenceFrequency.NONE ? booking.getDate() : booking.getRecurrenceEnd();
+        return recurrence.occurrences(booking.getDate(), end, booking.getDate(), end);
+    }
+
+    public Map<LocalDate, Set<Long>> employeeBookings(Collection<Long> employeeIds, Collection<LocalDate> dates) {
+        return bookings(employeeIds, dates, scheduleRepository::findEmployeeBookings, scheduleRepository::findEmployeeSeries);
+    }
+
+    public Map<LocalDate, Set<Long>> petBookings(Collection<Long> petIds, Collection<LocalDate> dates) {
+        return bookings(petIds, dates, scheduleRepository::findPetBookings, scheduleRepository::findPetSeries);
+    }
+
+    /**
+     * Every employee booking between the dates, both inclusive.
+     */
+    public Map<LocalDate, Set<Long>> employeeBookingsBetween(LocalDate from, LocalDate to) {
+        Map<LocalDate, Set<Long>> booked = new HashMap<>();
+        for (Object[] row : scheduleRepository.findEmployeeBookingsBetween(from, to)) {
+            booked.computeIfAbsent((LocalDate) row[1], d -> new HashSet<>()).add((Long) row[0]);
+        }
+        addSeries(booked, scheduleRepository.findAllEmployeeSeries(from, to), from, to, date -> true);
+        return booked;
+    }
+
+    /**
+     * Replaces each recurring schedule with its occurrences in [from, to], moved or dropped
+     * according to its overrides, and orders the result by date and id.
+     */
+    public List<ScheduleDTO> expand(List<ScheduleDTO> schedules, LocalDate from, LocalDate to) {
+        Map<Long, Map<LocalDate, LocalDate>> overrides = overrides(schedules.stream()
+                .filter(schedule -> recurrenceOf(schedule) != RecurrenceFrequency.NONE)
+                .map(ScheduleDTO::getId)
+                .collect(Collectors.toSet()));
+        List<ScheduleDTO> occurrences = new ArrayList<>(schedules.size());
+        for (ScheduleDTO schedule : schedules) {
+            RecurrenceFrequency recurrence = recurrenceOf(schedule);
+            if (recurrence == RecurrenceFrequency.NONE) {
+                if (!schedule.getDate().isBefore(from) && !schedule.getDate().isAfter(to)) {
+                    occurrences.add(schedule);
+                }
+                continue;
+            }
+            for (LocalDate date : occurrences(recurrence, schedule.getDate(), schedule.getRecurrenceEnd(),
+                    overrides.getOrDefault(schedule.getId(), Collections.emptyMap()), from, to)) {
+                occurrences.add(mapper.toOccurrence(schedule, date));
+            }
+        }
+        occurrences.sort(Comparator.comparing(ScheduleDTO::getDate).thenComparingLong(ScheduleDTO::getId));
+        return occurrences;
+    }
+
+    private Map<LocalDate, Set<Long>> bookings(Collection<Long> ids, Collection<LocalDate> dates,
+                                               BiFunction<Collection<Long>, Collection<LocalDate>, List<Object[]>> oneOffQuery,
+                                               SeriesQuery seriesQuery) {
+        Map<LocalDate, Set<Long>> booked = new HashMap<>();
+        if (ids.isEmpty() || dates.isEmpty()) {
+            return booked;
+        }
+        List<LocalDate> sortedDates = dates.stream().distinct().sorted().collect(Collectors.toList());
+        List<Object[]> series = new ArrayList<>();
+        for (List<Long> idChunk : Lists.partition(new ArrayList<>(ids), IN_CLAUSE_LIMIT)) {
+            for (List<LocalDate> dateChunk : Lists.partition(sortedDates, IN_CLAUSE_LIMIT)) {
+                for (Object[] row : oneOffQuery.apply(idChunk, dateChunk)) {
+                    booked.computeIfAbsent((LocalDate) row[1], d -> new HashSet<>()).add((Long) row[0]);
+                }
+            }
+            series.addAll(seriesQuery.find(idChunk, sortedDates.get(0), sortedDates.get(sortedDates.size() - 1)));
+        }
+        Set<LocalDate> wanted = new HashSet<>(sortedDates);
+        addSeries(booked, series, sortedDates.get(0), sortedDates.get(sortedDates.size() - 1), wanted::contains);
+        return booked;
+    }
+
+    /**
+     * Rows are (owner id, schedule id, start date, recurrence, recurrence end).
+     */
+    private void addSeries(Map<LocalDate, Set<Long>> booked, List<Object[]> series, LocalDate from, LocalDate to, Predicate<LocalDate> wanted) {
+        Map<Long, Map<LocalDate, LocalDate>> overrides = overrides(series.stream().map(row -> (Long) row[1]).collect(Collectors.toSet()));
+        for (Object[] row : series) {
+            List<LocalDate> dates = occurrences((RecurrenceFrequency) row[3], (LocalDate) row[2], (LocalDate) row[4],
+                    overrides.getOrDefault((Long) row[1], Collections.emptyMap()), from, to);
+            for (LocalDate date : dates) {
+                if (wanted.test(date)) {
+                    booked.computeIfAbsent(date, d -> new HashSet<>()).add((Long) row[0]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Schedule id to original date to new date, where a null new date is a cancellation.
+     */
+    private Map<Long, Map<LocalDate, LocalDate>> overrides(Set<Long> scheduleIds) {
+        Map<Long, Map<LocalDate, LocalDate>> overrides = new HashMap<>();
+        for (List<Long> chunk : Lists.partition(new ArrayList<>(scheduleIds), IN_CLAUSE_LIMIT)) {
+            for (Object[] row : overrideRepository.findOverrides(chunk)) {
+                overrides.computeIfAbsent((Long) row[0], id -> new HashMap<>()).put((LocalDate) row[1], (LocalDate) row[2]);
+            }
+        }
+        return overrides;
+    }
+
+    /**
+     * Moved occurrences stay within the series' own span, so looking at overrides of series
+     * overlapping [from, to] is enough to find everything landing in it.
+     */
+    private static List<LocalDate> occurrences(RecurrenceFrequency recurrence, LocalDate start, LocalDate end,
+                                               Map<LocalDate, LocalDate> overrides, LocalDate from, LocalDate to) {
+        List<LocalDate> dates = recurrence.occurrences(start, end, from, to);
+        if (overrides.isEmpty()) {
+            return dates;
+        }
+        dates.removeIf(overrides::containsKey);
+        for (LocalDate moved : overrides.values()) {
+            if (moved != null && !moved.isBefore(from) && !moved.isAfter(to)) {
+                dates.add(moved);
+            }
+        }
+        Collections.sort(dates);
+        return dates;
+    }
+
+    static RecurrenceFrequency recurrenceOf(ScheduleDTO schedule) {
+        return Objects.isNull(schedule.getRecurrence()) ? RecurrenceFrequency.NONE : schedule.getRecurrence();
+    }
+
+    private interface SeriesQuery {
+        List<Object[]> find(Collection<Long> ids, LocalDate from, LocalDate to);
+    }
+}
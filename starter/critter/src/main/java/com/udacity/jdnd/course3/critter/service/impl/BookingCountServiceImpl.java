@@ -0,0 +1,108 @@
+package com.udacity.jdnd.course3.critter.service.impl;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.udacity.jdnd.course3.critter.schedule.ScheduleDTO;
+import com.udacity.jdnd.course3.critter.service.BookingCountService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads a week of employee bookings, occurrences of recurring schedules included, the first
+ * time it is asked for and keeps it up to date from committed bookings. Weeks expire after a
+ * while so changes made outside this instance are eventually picked up.
+ */
+@Service
+public class BookingCountServiceImpl implements BookingCountService {
+    private final BookingCalendar calendar;
+    private final LoadingCache<LocalDate, WeekBookings> weeks;
+
+    public BookingCountServiceImpl(BookingCalendar calendar,
+                                   @Value("${critter.booking.count-cache-weeks:520}") long maxWeeks) {
+        this.calendar = calendar;
+        this.weeks = CacheBuilder.newBuilder()
+                .maximumSize(maxWeeks)
+                .expireAfterWrite(10, TimeUnit.MINUTES)
+                .build(CacheLoader.from(this::load));
+    }
+
+    @Override
+    public Map<Long, Integer> countsForWeekOf(LocalDate date) {
+        return Collections.unmodifiableMap(weeks.getUnchecked(weekOf(date)).counts);
+    }
+
+    @Override
+    public Set<Long> bookedOn(LocalDate date) {
+        return Collections.unmodifiableSet(weeks.getUnchecked(weekOf(date)).booked(date));
+    }
+
+    @Override
+    public void recordAfterCommit(List<ScheduleDTO> bookings) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                for (ScheduleDTO booking : bookings) {
+                    if (booking.getEmployeeIds() == null) {
+                        continue;
+                    }
+                    for (LocalDate date : calendar.occurrences(booking)) {
+                        WeekBookings week = weeks.getIfPresent(weekOf(date));
+                        if (week != null) {
+                            booking.getEmployeeIds().forEach(id -> week.add(id, date));
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public void invalidate(LocalDate date) {
+        weeks.invalidate(weekOf(date));
+    }
+
+    @Override
+    public void invalidateAfterCommit(Collection<LocalDate> dates) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                dates.forEach(BookingCountServiceImpl.this::invalidate);
+            }
+        });
+    }
+
+    private WeekBookings load(LocalDate monday) {
+        WeekBookings week = new WeekBookings();
+        calendar.employeeBookingsBetween(monday, monday.plusDays(6))
+                .forEach((date, employeeIds) -> employeeIds.forEach(id -> week.add(id, date)));
+        return week;
+    }
+
+    private static LocalDate weekOf(LocalDate date) {
+        return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    private static class WeekBookings {
+        private final Map<Long, Integer> counts = new ConcurrentHashMap<>();
+        private final Map<LocalDate, Set<Long>> bookedByDate = new ConcurrentHashMap<>();
+
+        void add(long employeeId, LocalDate date) {
+            counts.merge(employeeId, 1, Integer::sum);
+            booked(date).add(employeeId);
+        }
+
+        Set<Long> booked(LocalDate date) {
+            return bookedByDate.computeIfAbsent(date, d -> ConcurrentHashMap.newKeySet());
+        }
+    }
+}
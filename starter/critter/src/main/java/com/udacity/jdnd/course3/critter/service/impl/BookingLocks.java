@@ -0,0 +1,76 @@
+package com.udacity.jdnd.course3.critter.service.impl;
+
+import com.google.common.util.concurrent.Striped;
+import com.udacity.jdnd.course3.critter.schedule.ScheduleConflictException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Striped locks keyed by employee and pet id. Bookings for different employees and pets
+ * only contend when their ids share a stripe, and the locks are held until the surrounding
+ * transaction completes, so a second booking sees the first one's committed rows.
+ * These locks are per JVM; they do not coordinate several application instances.
+ */
+@Component
+public class BookingLocks {
+    private final Striped<Lock> employeeLocks;
+    private final Striped<Lock> petLocks;
+    private final long timeoutMillis;
+
+    public BookingLocks(@Value("${critter.booking.lock-stripes:1024}") int stripes,
+                        @Value("${critter.booking.lock-timeout-ms:5000}") long timeoutMillis) {
+        this.employeeLocks = Striped.lock(stripes);
+        this.petLocks = Striped.lock(stripes);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Locks the stripes of all given ids, employees before pets and each in stripe order so
+     * concurrent callers cannot deadlock, and releases them after the current transaction.
+     */
+    public void lockUntilCompletion(Collection<Long> employeeIds, Collection<Long> petIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Booking locks require an active transaction");
+        }
+        List<Lock> locks = new ArrayList<>();
+        employeeLocks.bulkGet(employeeIds).forEach(locks::add);
+        petLocks.bulkGet(petIds).forEach(locks::add);
+
+        List<Lock> held = new ArrayList<>(locks.size());
+        try {
+            for (Lock lock : locks) {
+                if (!lock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    throw new ScheduleConflictException("Timed out waiting for a concurrent booking to finish");
+                }
+                held.add(lock);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            unlock(held);
+            throw new ScheduleConflictException("Interrupted while waiting for a concurrent booking to finish");
+        } catch (RuntimeException e) {
+            unlock(held);
+            throw e;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                unlock(held);
+            }
+        });
+    }
+
+    private static void unlock(List<Lock> held) {
+        Collections.reverse(held);
+        held.forEach(Lock::unlock);
+    }
+}
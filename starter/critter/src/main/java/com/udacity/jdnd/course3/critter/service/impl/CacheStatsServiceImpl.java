@@ -0,0 +1,65 @@
+package com.udacity.jdnd.course3.critter.service.impl;
+
+import com.udacity.jdnd.course3.critter.cache.CacheRegionStatsDTO;
+import com.udacity.jdnd.course3.critter.service.CacheStatsService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.persistence.EntityManagerFactory;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+/**
+ * Reads hit/miss/put counts from Hibernate statistics and eviction counts from the
+ * JCache statistics MBeans that Ehcache registers for each region.
+ */
+@Service
+public class CacheStatsServiceImpl implements CacheStatsService {
+    private final SessionFactory sessionFactory;
+    private final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+    public CacheStatsServiceImpl(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    @Override
+    public List<CacheRegionStatsDTO> getRegionStats() {
+        Statistics statistics = sessionFactory.getStatistics();
+        Map<String, Long> evictions = evictionsByCache();
+        String[] regionNames = statistics.getSecondLevelCacheRegionNames();
+        Arrays.sort(regionNames);
+        List<CacheRegionStatsDTO> result = new ArrayList<>(regionNames.length);
+        for (String regionName : regionNames) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(regionName);
+            if (Objects.isNull(region)) {
+                continue;
+            }
+            CacheRegionStatsDTO dto = new CacheRegionStatsDTO();
+            dto.setRegion(regionName);
+            dto.setHits(region.getHitCount());
+            dto.setMisses(region.getMissCount());
+            dto.setPuts(region.getPutCount());
+            dto.setEvictions(evictions.getOrDefault(regionName, 0L));
+            result.add(dto);
+        }
+        return result;
+    }
+
+    private Map<String, Long> evictionsByCache() {
+        Map<String, Long> evictions = new HashMap<>();
+        try {
+            for (ObjectName name : mBeanServer.queryNames(new ObjectName("javax.cache:type=CacheStatistics,*"), null)) {
+                Object count = mBeanServer.getAttribute(name, "CacheEvictions");
+                evictions.put(name.getKeyProperty("Cache"), ((Number) count).longValue());
+            }
+        } catch (JMException e) {
+            // statistics are best effort; regions without an MBean report zero evictions
+        }
+        return evictions;
+    }
+}
@@ -0,0 +1,126 @@
+package com.udacity.jdnd.course3.critter.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.udacity.jdnd.course3.critter.common.NdjsonWriter;
+import com.udacity.jdnd.course3.critter.dao.CustomerRepository;
+import com.udacity.jdnd.course3.critter.dao.PetRepository;
+import com.udacity.jdnd.course3.critter.pet.PetDTO;
+import com.udacity.jdnd.course3.critter.pet.PetType;
+import com.udacity.jdnd.course3.critter.schedule.ScheduleDTO;
+import com.udacity.jdnd.course3.critter.service.ExportService;
+import com.udacity.jdnd.course3.critter.service.ScheduleService;
+import com.udacity.jdnd.course3.critter.user.CustomerDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Pets and customers are read through a single forward-only cursor of scalar rows, so nothing
+ * is attached to the persistence context. Schedules are read in keyset chunks with the same
+ * id projections as the paged endpoint, and the context is cleared after every chunk.
+ */
+@Service
+@Transactional(readOnly = true)
+public class ExportServiceImpl implements ExportService {
+    private final PetRepository petRepository;
+    private final CustomerRepository customerRepository;
+    private final ScheduleService scheduleService;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ExportServiceImpl(PetRepository petRepository, CustomerRepository customerRepository, ScheduleService scheduleService, ObjectMapper objectMapper,
+                             @Value("${critter.export.chunk-size:1000}") int chunkSize) {
+        this.petRepository = petRepository;
+        this.customerRepository = customerRepository;
+        this.scheduleService = scheduleService;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public long exportPets(OutputStream out) throws IOException {
+        try (Stream<Object[]> rows = petRepository.streamAllForExport();
+             NdjsonWriter writer = new NdjsonWriter(objectMapper, out, chunkSize)) {
+            Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                Object[] row = iterator.next();
+                PetDTO pet = new PetDTO();
+                pet.setId((Long) row[0]);
+                pet.setType((PetType) row[1]);
+                pet.setName((String) row[2]);
+                if (Objects.nonNull(row[3])) {
+                    pet.setOwnerId((Long) row[3]);
+                }
+                pet.setBirthDate((LocalDate) row[4]);
+                pet.setNotes((String) row[5]);
+                writer.write(pet);
+            }
+            return writer.getRows();
+        }
+    }
+
+    /**
+     * Rows arrive ordered by customer, so a customer is written as soon as the next one starts
+     * and only one customer's pet ids are held at a time.
+     */
+    @Override
+    public long exportCustomers(OutputStream out) throws IOException {
+        try (Stream<Object[]> rows = customerRepository.streamAllForExport();
+             NdjsonWriter writer = new NdjsonWriter(objectMapper, out, chunkSize)) {
+            CustomerDTO customer = null;
+            Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                Object[] row = iterator.next();
+                long id = (Long) row[0];
+                if (Objects.isNull(customer) || customer.getId() != id) {
+                    if (Objects.nonNull(customer)) {
+                        writer.write(customer);
+                    }
+                    customer = new CustomerDTO(id, (String) row[1], (String) row[2], (String) row[3]);
+                    customer.setPetIds(new ArrayList<>());
+                }
+                if (Objects.nonNull(row[4])) {
+                    customer.getPetIds().add((Long) row[4]);
+                }
+            }
+            if (Objects.nonNull(customer)) {
+                writer.write(customer);
+            }
+            return writer.getRows();
+        }
+    }
+
+    /**
+     * Writes stored schedules; recurring ones appear once with their recurrence rule.
+     */
+    @Override
+    public long exportSchedules(OutputStream out) throws IOException {
+        try (NdjsonWriter writer = new NdjsonWriter(objectMapper, out, chunkSize)) {
+            long afterId = 0;
+            List<ScheduleDTO> chunk;
+            do {
+                chunk = scheduleService.getSchedules(afterId, chunkSize);
+                for (ScheduleDTO schedule : chunk) {
+                    writer.write(schedule);
+                    afterId = schedule.getId();
+                }
+                entityManager.clear();
+            } while (chunk.size() == chunkSize);
+            return writer.getRows();
+        }
+    }
+}
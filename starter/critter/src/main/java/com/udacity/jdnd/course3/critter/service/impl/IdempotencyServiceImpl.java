@@ -0,0 +1,187 @@
+package com.udacity.jdnd.course3.critter.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.udacity.jdnd.course3.critter.dao.IdempotencyRecordRepository;
+import com.udacity.jdnd.course3.critter.idempotency.IdempotencyRecord;
+import com.udacity.jdnd.course3.critter.service.IdempotencyService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Keeps in-flight and completed executions in a bounded cache that forgets them after the
+ * retention period. With {@code critter.idempotency.persistent} set, each response is also
+ * written to the idempotency_record table in the transaction that produced it, so keys
+ * survive restarts and are shared between instances: the primary key makes a second
+ * instance's duplicate roll back, after which it replays the first one's response.
+ */
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyServiceImpl.class);
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyRecordRepository recordRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final boolean persistent;
+    private final Duration retention;
+    private final long waitMillis;
+    private final Cache<String, Execution> executions;
+
+    public IdempotencyServiceImpl(IdempotencyRecordRepository recordRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  ObjectMapper objectMapper,
+                                  @Value("${critter.idempotency.persistent:false}") boolean persistent,
+                                  @Value("${critter.idempotency.max-keys:100000}") long maxKeys,
+                                  @Value("${critter.idempotency.retention-hours:24}") long retentionHours,
+                                  @Value("${critter.idempotency.wait-ms:10000}") long waitMillis) {
+        this.recordRepository = recordRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.persistent = persistent;
+        this.retention = Duration.ofHours(retentionHours);
+        this.waitMillis = waitMillis;
+        this.executions = CacheBuilder.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterWrite(retentionHours, TimeUnit.HOURS)
+                .build();
+    }
+
+    @Override
+    public <T> T execute(String key, String fingerprint, Class<T> type, Supplier<T> action) {
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        while (true) {
+            Execution execution = new Execution(fingerprint);
+            Execution first = executions.asMap().putIfAbsent(key, execution);
+            if (Objects.isNull(first)) {
+                return run(key, execution, type, action);
+            }
+            checkFingerprint(first.fingerprint, fingerprint);
+            Optional<Object> response = await(first);
+            if (response.isPresent()) {
+                return type.cast(response.get());
+            }
+            // the first attempt failed and has been forgotten, so this one gets to run
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${critter.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpiredRecords() {
+        if (!persistent) {
+            return;
+        }
+        Integer purged = transactionTemplate.execute(status -> recordRepository.deleteCreatedBefore(Instant.now().minus(retention)));
+        log.debug("Purged {} expired idempotency records", purged);
+    }
+
+    private <T> T run(String key, Execution execution, Class<T> type, Supplier<T> action) {
+        try {
+            T response = persistent ? runRecorded(key, execution.fingerprint, type, action) : action.get();
+            execution.response.complete(response);
+            return response;
+        } catch (RuntimeException | Error e) {
+            executions.asMap().remove(key, execution);
+            execution.response.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private <T> T runRecorded(String key, String fingerprint, Class<T> type, Supplier<T> action) {
+        Optional<T> recorded = replay(key, fingerprint, type);
+        if (recorded.isPresent()) {
+            return recorded.get();
+        }
+        try {
+            return transactionTemplate.execute(status -> {
+                T response = action.get();
+                IdempotencyRecord record = new IdempotencyRecord();
+                record.setKey(key);
+                record.setFingerprint(fingerprint);
+                record.setResponse(write(response));
+                record.setCreatedAt(Instant.now());
+                // merges over an expired record that has not been purged yet
+                recordRepository.save(record);
+                return response;
+            });
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Idempotency key {} was completed concurrently elsewhere, replaying it", key);
+            return replay(key, fingerprint, type).orElseThrow(() -> e);
+        }
+    }
+
+    private <T> Optional<T> replay(String key, String fingerprint, Class<T> type) {
+        Instant cutoff = Instant.now().minus(retention);
+        return recordRepository.findById(key)
+                .filter(record -> record.getCreatedAt().isAfter(cutoff))
+                .map(record -> {
+                    checkFingerprint(record.getFingerprint(), fingerprint);
+                    return read(record.getResponse(), type);
+                });
+    }
+
+    private Optional<Object> await(Execution first) {
+        try {
+            return Optional.of(first.response.get(waitMillis, TimeUnit.MILLISECONDS));
+        } catch (ExecutionException e) {
+            return Optional.empty();
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A request with this " + HEADER + " is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Interrupted while waiting for a request with this " + HEADER);
+        }
+    }
+
+    private static void checkFingerprint(String expected, String actual) {
+        if (!expected.equals(actual)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, HEADER + " was already used for a different request");
+        }
+    }
+
+    private String write(Object response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot store response of type " + response.getClass().getName(), e);
+        }
+    }
+
+    private <T> T read(String response, Class<T> type) {
+        try {
+            return objectMapper.readValue(response, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot replay stored response as " + type.getName(), e);
+        }
+    }
+
+    private static class Execution {
+        private final String fingerprint;
+        private final CompletableFuture<Object> response = new CompletableFuture<>();
+
+        Execution(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+}
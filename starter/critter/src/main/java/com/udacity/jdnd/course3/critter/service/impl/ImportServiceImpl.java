@@ -0,0 +1,307 @@
+package com.udacity.jdnd.course3.critter.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import com.udacity.jdnd.course3.critter.dao.CustomerRepository;
+import com.udacity.jdnd.course3.critter.importer.ImportReport;
+import com.udacity.jdnd.course3.critter.importer.ImportRowError;
+import com.udacity.jdnd.course3.critter.pet.Pet;
+import com.udacity.jdnd.course3.critter.pet.PetDTO;
+import com.udacity.jdnd.course3.critter.pet.PetMapper;
+import com.udacity.jdnd.course3.critter.service.AvailabilityIndexService;
+import com.udacity.jdnd.course3.critter.service.ImportService;
+import com.udacity.jdnd.course3.critter.user.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the upload a line at a time and writes every {@code chunkSize} rows in their own
+ * transaction, so a load commits as it goes and only one chunk is ever held in memory. Rows
+ * are persisted straight through the entity manager and flushed once per chunk, which lets
+ * Hibernate send them as JDBC batches with ids taken from the pooled sequences.
+ * <p>
+ * Rows that fail validation are reported and left out of their chunk. If a chunk still fails
+ * in the database it is rolled back and retried a row at a time to find the culprits.
+ * <p>
+ * Customer ids from the upload are remembered for {@code critter.import.id-map-hours}, mapped
+ * to the ids the customers got here, so a pets export loaded after the customers export it
+ * came with finds its owners. That is one map entry per imported customer, held by this
+ * instance only.
+ */
+@Service
+public class ImportServiceImpl implements ImportService {
+    private static final Logger log = LoggerFactory.getLogger(ImportServiceImpl.class);
+    private static final int IN_CLAUSE_LIMIT = 1000;
+    private static final int NAME_LENGTH = 50;
+    private static final int PHONE_NUMBER_LENGTH = 15;
+
+    private final CustomerRepository customerRepository;
+    private final CustomerMapper customerMapper;
+    private final PetMapper petMapper;
+    private final EmployeeMapper employeeMapper;
+    private final AvailabilityIndexService availabilityIndex;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final Cache<Long, Long> importedCustomerIds;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ImportServiceImpl(CustomerRepository customerRepository, CustomerMapper customerMapper, PetMapper petMapper,
+                             EmployeeMapper employeeMapper, AvailabilityIndexService availabilityIndex, ObjectMapper objectMapper,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${critter.import.chunk-size:1000}") int chunkSize,
+                             @Value("${critter.import.id-map-hours:24}") int idMapHours) {
+        this.customerRepository = customerRepository;
+        this.customerMapper = customerMapper;
+        this.petMapper = petMapper;
+        this.employeeMapper = employeeMapper;
+        this.availabilityIndex = availabilityIndex;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.importedCustomerIds = CacheBuilder.newBuilder()
+                .expireAfterWrite(idMapHours, TimeUnit.HOURS)
+                .build();
+    }
+
+    @Override
+    public ImportReport importCustomers(InputStream in) throws IOException {
+        return load("customers", in, CustomerDTO.class, this::writeCustomers);
+    }
+
+    @Override
+    public ImportReport importPets(InputStream in) throws IOException {
+        return load("pets", in, PetDTO.class, this::writePets);
+    }
+
+    @Override
+    public ImportReport importEmployees(InputStream in) throws IOException {
+        return load("employees", in, EmployeeDTO.class, this::writeEmployees);
+    }
+
+    private List<ImportRowError> writeCustomers(List<Row<CustomerDTO>> rows) {
+        Map<Long, Long> newIds = new HashMap<>();
+        List<ImportRowError> errors = new ArrayList<>();
+        for (Row<CustomerDTO> row : rows) {
+            CustomerDTO customer = row.value;
+            String problem = firstProblem(checkText("name", customer.getName(), NAME_LENGTH),
+                    checkText("phoneNumber", customer.getPhoneNumber(), PHONE_NUMBER_LENGTH));
+            if (Objects.nonNull(problem)) {
+                errors.add(new ImportRowError(row.line, problem));
+                continue;
+            }
+            // the row is left as uploaded, since a failed chunk is written again a row at a time
+            Customer entity = customerMapper.toEntity(customer);
+            entity.setId(null);
+            entityManager.persist(entity);
+            if (customer.getId() > 0) {
+                newIds.put(customer.getId(), entity.getId());
+            }
+        }
+        rememberCustomerIds(newIds);
+        return errors;
+    }
+
+    /**
+     * An owner id is first looked up among the customer ids of earlier uploads, and only
+     * otherwise taken as the id of a customer already here, checked with one id query per
+     * chunk. Owners are attached as references, so no customer is loaded.
+     */
+    private List<ImportRowError> writePets(List<Row<PetDTO>> rows) {
+        Map<Long, Long> owners = new HashMap<>();
+        Set<Long> unmapped = new HashSet<>();
+        for (Row<PetDTO> row : rows) {
+            long ownerId = row.value.getOwnerId();
+            Long imported = importedCustomerIds.getIfPresent(ownerId);
+            if (Objects.nonNull(imported)) {
+                owners.put(ownerId, imported);
+            } else {
+                unmapped.add(ownerId);
+            }
+        }
+        for (List<Long> chunk : Lists.partition(new ArrayList<>(unmapped), IN_CLAUSE_LIMIT)) {
+            customerRepository.findExistingIds(chunk).forEach(id -> owners.put(id, id));
+        }
+        List<ImportRowError> errors = new ArrayList<>();
+        for (Row<PetDTO> row : rows) {
+            PetDTO pet = row.value;
+            Long ownerId = owners.get(pet.getOwnerId());
+            if (Objects.isNull(ownerId)) {
+                errors.add(new ImportRowError(row.line, "Unknown owner " + pet.getOwnerId()));
+                continue;
+            }
+            Pet entity = petMapper.toEntity(pet);
+            entity.setId(null);
+            entity.setCustomer(entityManager.getReference(Customer.class, ownerId));
+            entityManager.persist(entity);
+        }
+        return errors;
+    }
+
+    /**
+     * Ids are assigned on persist, so the availability index is updated right away; it undoes
+     * its own changes if the chunk rolls back.
+     */
+    private List<ImportRowError> writeEmployees(List<Row<EmployeeDTO>> rows) {
+        List<ImportRowError> errors = new ArrayList<>();
+        for (Row<EmployeeDTO> row : rows) {
+            EmployeeDTO employee = row.value;
+            String problem = checkText("name", employee.getName(), NAME_LENGTH);
+            if (Objects.nonNull(problem)) {
+                errors.add(new ImportRowError(row.line, problem));
+                continue;
+            }
+            Employee entity = employeeMapper.toEntity(employee);
+            entity.setId(null);
+            entityManager.persist(entity);
+            availabilityIndex.index(entity.getId(), entity.getSkills(), entity.getDaysAvailable());
+        }
+        return errors;
+    }
+
+    /**
+     * Takes effect straight away, since a chunk's transaction may be a caller's; if it rolls
+     * back, the uploaded ids go back to what they mapped to before.
+     */
+    private void rememberCustomerIds(Map<Long, Long> newIds) {
+        if (newIds.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> previous = new HashMap<>(importedCustomerIds.getAllPresent(newIds.keySet()));
+        importedCustomerIds.putAll(newIds);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    importedCustomerIds.invalidateAll(newIds.keySet());
+                    importedCustomerIds.putAll(previous);
+                }
+            }
+        });
+    }
+
+    private <T> ImportReport load(String entity, InputStream in, Class<T> type, ChunkWriter<T> writer) throws IOException {
+        long start = System.nanoTime();
+        ImportReport report = new ImportReport(entity);
+        ObjectReader reader = objectMapper.readerFor(type);
+        BufferedReader lines = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<Row<T>> chunk = new ArrayList<>(chunkSize);
+        long lineNumber = 0;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            report.rowRead();
+            try {
+                T value = reader.readValue(line);
+                if (Objects.isNull(value)) {
+                    report.fail(new ImportRowError(lineNumber, "Row is null"));
+                } else {
+                    chunk.add(new Row<>(lineNumber, value));
+                }
+            } catch (JsonProcessingException e) {
+                report.fail(new ImportRowError(lineNumber, "Unreadable row: " + e.getOriginalMessage()));
+            }
+            if (chunk.size() == chunkSize) {
+                writeChunk(entity, chunk, writer, report);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(entity, chunk, writer, report);
+        }
+        report.finish(start);
+        log.info("Import of {} finished: {} rows, {} imported, {} failed in {} ms",
+                entity, report.getRows(), report.getImported(), report.getFailed(), report.getElapsedMillis());
+        return report;
+    }
+
+    private <T> void writeChunk(String entity, List<Row<T>> chunk, ChunkWriter<T> writer, ImportReport report) {
+        try {
+            record(report, chunk.size(), transactionTemplate.execute(status -> flushed(writer.write(chunk))));
+        } catch (RuntimeException e) {
+            log.warn("Chunk of {} {} rows failed, retrying row by row: {}", chunk.size(), entity, rootMessage(e));
+            for (Row<T> row : chunk) {
+                try {
+                    record(report, 1, transactionTemplate.execute(status -> flushed(writer.write(Collections.singletonList(row)))));
+                } catch (RuntimeException rowFailure) {
+                    report.fail(new ImportRowError(row.line, rootMessage(rowFailure)));
+                }
+            }
+        }
+        log.info("Importing {}: {} rows read, {} imported, {} failed", entity, report.getRows(), report.getImported(), report.getFailed());
+    }
+
+    /**
+     * Sends the chunk's inserts inside the transaction and detaches them, so the persistence
+     * context does not grow across chunks.
+     */
+    private List<ImportRowError> flushed(List<ImportRowError> errors) {
+        entityManager.flush();
+        entityManager.clear();
+        return errors;
+    }
+
+    private static void record(ImportReport report, int attempted, List<ImportRowError> errors) {
+        report.imported(attempted - errors.size());
+        errors.forEach(report::fail);
+    }
+
+    private static String checkText(String field, String value, int maxLength) {
+        if (Objects.isNull(value) || value.trim().isEmpty()) {
+            return field + " is required";
+        }
+        return value.length() > maxLength ? field + " is longer than " + maxLength + " characters" : null;
+    }
+
+    private static String firstProblem(String... problems) {
+        return Arrays.stream(problems).filter(Objects::nonNull).findFirst().orElse(null);
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = Throwables.getRootCause(e);
+        return Objects.isNull(root.getMessage()) ? root.getClass().getSimpleName() : root.getMessage();
+    }
+
+    private static final class Row<T> {
+        private final long line;
+        private final T value;
+
+        private Row(long line, T value) {
+            this.line = line;
+            this.value = value;
+        }
+    }
+
+    private interface ChunkWriter<T> {
+        List<ImportRowError> write(List<Row<T>> rows);
+    }
+}
@@ -1,17 +1,21 @@
 package com.udacity.jdnd.course3.critter.service.impl;
 
+import com.udacity.jdnd.course3.critter.common.ETags;
 import com.udacity.jdnd.course3.critter.dao.CustomerRepository;
 import com.udacity.jdnd.course3.critter.dao.PetRepository;
 import com.udacity.jdnd.course3.critter.pet.Pet;
 import com.udacity.jdnd.course3.critter.pet.PetDTO;
+import com.udacity.jdnd.course3.critter.pet.PetMapper;
 import com.udacity.jdnd.course3.critter.service.PetService;
 import com.udacity.jdnd.course3.critter.user.Customer;
-import org.modelmapper.ModelMapper;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import javax.transaction.Transactional;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
@@ -19,10 +23,10 @@ import java.util.Optional;
 public class PetServiceImpl implements PetService {
     private final PetRepository petRepository;
     private final CustomerRepository customerRepository;
-    private final ModelMapper mapper;
+    private final PetMapper mapper;
 
     @Autowired
-    public PetServiceImpl(PetRepository petRepository, CustomerRepository customerRepository, ModelMapper mapper) {
+    public PetServiceImpl(PetRepository petRepository, CustomerRepository customerRepository, PetMapper mapper) {
         this.petRepository = petRepository;
         this.customerRepository = customerRepository;
         this.mapper = mapper;
@@ -30,27 +34,58 @@ public class PetServiceImpl implements PetService {
 
     @Override
     public Pet save(PetDTO p) {
-        Pet pet = mapper.map(p, Pet.class);
+        Pet pet = mapper.toEntity(p);
+        // an update replaces the stored pet whatever version the client saw last
+        if (Objects.nonNull(pet.getId())) {
+            petRepository.findVersion(pet.getId()).ifPresent(pet::setVersion);
+        }
         Customer owner = customerRepository.getOne(p.getOwnerId());
         pet.setCustomer(owner);
         Pet newPet = petRepository.save(pet);
-        owner.getPets().add(newPet);
+        // only keep an already loaded collection in step, never load every pet to add one
+        if (Hibernate.isInitialized(owner.getPets())) {
+            owner.getPets().add(newPet);
+        }
         return newPet;
     }
 
+    @Transactional(readOnly = true)
     @Override
     public Pet getPet(long id) {
         Optional<Pet> petOptional = petRepository.findById(id);
         return petOptional.orElse(null);
     }
 
+    @Transactional(readOnly = true)
     @Override
     public List<Pet> getPets() {
         return petRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
+    @Override
+    public List<Pet> getPets(long afterId, int limit) {
+        return petRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, limit));
+    }
+
+    @Transactional(readOnly = true)
     @Override
     public List<Pet> getPetsByOwner(long ownerId) {
         return petRepository.findByCustomerId(ownerId);
     }
+
+    /**
+     * Null when there is no such pet, so the request goes on to the usual not-found handling.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public String getPetETag(long id) {
+        return petRepository.findVersion(id).map(ETags::weak).orElse(null);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public String getPetsByOwnerETag(long ownerId) {
+        return ETags.summary(petRepository.summarizeVersionsByCustomerId(ownerId));
+    }
 }
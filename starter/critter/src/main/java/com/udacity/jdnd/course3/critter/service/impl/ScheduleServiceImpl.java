@@ -1,22 +1,40 @@
 package com.udacity.jdnd.course3.critter.service.impl;
 
+import com.google.common.collect.Lists;
+import com.udacity.jdnd.course3.critter.common.ETags;
 import com.udacity.jdnd.course3.critter.dao.CustomerRepository;
 import com.udacity.jdnd.course3.critter.dao.EmployeeRepository;
 import com.udacity.jdnd.course3.critter.dao.PetRepository;
+import com.udacity.jdnd.course3.critter.dao.ScheduleOverrideRepository;
 import com.udacity.jdnd.course3.critter.dao.ScheduleRepository;
 import com.udacity.jdnd.course3.critter.pet.Pet;
+import com.udacity.jdnd.course3.critter.schedule.RecurrenceFrequency;
 import com.udacity.jdnd.course3.critter.schedule.Schedule;
+import com.udacity.jdnd.course3.critter.schedule.ScheduleConflictException;
 import com.udacity.jdnd.course3.critter.schedule.ScheduleDTO;
+import com.udacity.jdnd.course3.critter.schedule.ScheduleMapper;
+import com.udacity.jdnd.course3.critter.schedule.ScheduleOverride;
+import com.udacity.jdnd.course3.critter.schedule.ScheduleOverrideDTO;
+import com.udacity.jdnd.course3.critter.service.BookingCountService;
 import com.udacity.jdnd.course3.critter.service.ScheduleService;
+import com.udacity.jdnd.course3.critter.service.UtilizationService;
 import com.udacity.jdnd.course3.critter.user.Customer;
 import com.udacity.jdnd.course3.critter.user.Employee;
-import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
+import javax.persistence.EntityManager;
 import javax.persistence.EntityNotFoundException;
-import javax.transaction.Transactional;
-import java.util.List;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -24,57 +42,312 @@ import java.util.stream.Stream;
 @Service
 @Transactional
 public class ScheduleServiceImpl implements ScheduleService {
+    private static final int IN_CLAUSE_LIMIT = 1000;
+    private static final LocalDate EARLIEST = LocalDate.of(1000, 1, 1);
+    private static final LocalDate LATEST = LocalDate.of(9999, 12, 31);
+    private static final int MAX_SERIES_YEARS = 5;
+
     private final ScheduleRepository scheduleRepository;
+    private final ScheduleOverrideRepository overrideRepository;
     private final PetRepository petRepository;
     private final EmployeeRepository employeeRepository;
     private final CustomerRepository customerRepository;
-    private final ModelMapper mapper;
+    private final ScheduleMapper mapper;
+    private final BookingLocks bookingLocks;
+    private final BookingCountService bookingCounts;
+    private final BookingCalendar calendar;
+    private final UtilizationService utilization;
+    private final int batchSize;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
-    public ScheduleServiceImpl(ScheduleRepository scheduleRepository, PetRepository petRepository, EmployeeRepository employeeRepository, CustomerRepository customerRepository, ModelMapper mapper) {
+    public ScheduleServiceImpl(ScheduleRepository scheduleRepository, ScheduleOverrideRepository overrideRepository, PetRepository petRepository, EmployeeRepository employeeRepository, CustomerRepository customerRepository, ScheduleMapper mapper,
+                               BookingLocks bookingLocks, BookingCountService bookingCounts, BookingCalendar calendar,
+                               UtilizationService utilization, @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
         this.scheduleRepository = scheduleRepository;
+        this.overrideRepository = overrideRepository;
         this.petRepository = petRepository;
         this.employeeRepository = employeeRepository;
         this.customerRepository = customerRepository;
         this.mapper = mapper;
+        this.bookingLocks = bookingLocks;
+        this.bookingCounts = bookingCounts;
+        this.calendar = calendar;
+        this.utilization = utilization;
+        this.batchSize = batchSize;
     }
 
     @Override
     public Schedule createSchedule(ScheduleDTO scheduleDTO) {
-        Schedule schedule = mapper.map(scheduleDTO, Schedule.class);
-        List<Pet> pets = scheduleDTO.getPetIds().stream().map(id -> {
-            Pet pet = petRepository.getOne(id);
-            pet.getSchedule().add(schedule);
-            return pet;
-        }).collect(Collectors.toList());
-        List<Employee> employees = scheduleDTO.getEmployeeIds().stream().map(id -> {
-            Employee employee = employeeRepository.findById(id).orElseThrow(EntityNotFoundException::new);
-            employee.getSchedule().add(schedule);
-            return employee;
-        }).collect(Collectors.toList());
-        schedule.setPets(pets);
-        schedule.setEmployees(employees);
+        List<ScheduleDTO> booking = Collections.singletonList(scheduleDTO);
+        bookingLocks.lockUntilCompletion(referencedIds(booking, ScheduleDTO::getEmployeeIds), referencedIds(booking, ScheduleDTO::getPetIds));
+        checkConflicts(booking);
+        bookingCounts.recordAfterCommit(booking);
+        Schedule schedule = mapper.toEntity(scheduleDTO);
+        schedule.setPets(resolve(scheduleDTO.getPetIds(), petsById(booking)));
+        schedule.setEmployees(resolve(scheduleDTO.getEmployeeIds(), employeesById(booking)));
+        utilization.recordBookings(booking);
         return scheduleRepository.save(schedule);
     }
 
+    /**
+     * Creates all schedules in one transaction. Referenced pets and employees are checked
+     * with one IN query each, and the persistence context is flushed and cleared every
+     * {@code batchSize} schedules so inserts go out as JDBC batches.
+     */
     @Override
-    public List<Schedule> getAllSchedule() {
-        return scheduleRepository.findAll();
+    public List<Schedule> createSchedules(List<ScheduleDTO> scheduleDTOs) {
+        bookingLocks.lockUntilCompletion(referencedIds(scheduleDTOs, ScheduleDTO::getEmployeeIds), referencedIds(scheduleDTOs, ScheduleDTO::getPetIds));
+        checkConflicts(scheduleDTOs);
+        bookingCounts.recordAfterCommit(scheduleDTOs);
+        Map<Long, Pet> pets = petsById(scheduleDTOs);
+        Map<Long, Employee> employees = employeesById(scheduleDTOs);
+
+        List<Schedule> schedules = new ArrayList<>(scheduleDTOs.size());
+        for (ScheduleDTO scheduleDTO : scheduleDTOs) {
+            Schedule schedule = mapper.toEntity(scheduleDTO);
+            schedule.setPets(resolve(scheduleDTO.getPetIds(), pets));
+            schedule.setEmployees(resolve(scheduleDTO.getEmployeeIds(), employees));
+            entityManager.persist(schedule);
+            schedules.add(schedule);
+            if (schedules.size() % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        // after the loop, whose clear() would detach rollup rows before they are inserted
+        utilization.recordBookings(scheduleDTOs);
+        entityManager.flush();
+        return schedules;
     }
 
+    /**
+     * Rejects the bookings if an employee does not work on one of a schedule's dates, or if an
+     * employee or pet already has a schedule on that date, in the database or earlier in the
+     * same list. Recurring bookings are checked on every occurrence. Callers must hold the
+     * booking locks for every referenced id.
+     */
+    private void checkConflicts(List<ScheduleDTO> scheduleDTOs) {
+        scheduleDTOs.forEach(ScheduleServiceImpl::validateRecurrence);
+        List<List<LocalDate>> occurrences = scheduleDTOs.stream().map(calendar::occurrences).collect(Collectors.toList());
+        Set<LocalDate> dates = occurrences.stream().flatMap(List::stream).collect(Collectors.toSet());
+        Map<LocalDate, Set<Long>> bookedEmployees = calendar.employeeBookings(referencedIds(scheduleDTOs, ScheduleDTO::getEmployeeIds), dates);
+        Map<LocalDate, Set<Long>> bookedPets = calendar.petBookings(referencedIds(scheduleDTOs, ScheduleDTO::getPetIds), dates);
+        Map<Long, Set<DayOfWeek>> workingDays = workingDays(referencedIds(scheduleDTOs, ScheduleDTO::getEmployeeIds));
+
+        for (int i = 0; i < scheduleDTOs.size(); i++) {
+            ScheduleDTO scheduleDTO = scheduleDTOs.get(i);
+            for (LocalDate date : occurrences.get(i)) {
+                checkConflicts(scheduleDTO.getEmployeeIds(), scheduleDTO.getPetIds(), date, workingDays, bookedEmployees, bookedPets);
+            }
+        }
+    }
+
+    private void checkConflicts(List<Long> employeeIds, List<Long> petIds, LocalDate date, Map<Long, Set<DayOfWeek>> workingDays,
+                                Map<LocalDate, Set<Long>> bookedEmployees, Map<LocalDate, Set<Long>> bookedPets) {
+        Set<Long> employeesOnDate = bookedEmployees.computeIfAbsent(date, d -> new HashSet<>());
+        for (Long employeeId : Optional.ofNullable(employeeIds).orElse(Collections.emptyList())) {
+            if (!workingDays.getOrDefault(employeeId, Collections.emptySet()).contains(date.getDayOfWeek())) {
+                throw new ScheduleConflictException("Employee " + employeeId + " does not work on " + date.getDayOfWeek());
+            }
+            if (!employeesOnDate.add(employeeId)) {
+                throw new ScheduleConflictException("Employee " + employeeId + " is already booked on " + date);
+            }
+        }
+        Set<Long> petsOnDate = bookedPets.computeIfAbsent(date, d -> new HashSet<>());
+        for (Long petId : Optional.ofNullable(petIds).orElse(Collections.emptyList())) {
+            if (!petsOnDate.add(petId)) {
+                throw new ScheduleConflictException("Pet " + petId + " is already booked on " + date, true);
+            }
+        }
+    }
+
+    private static void validateRecurrence(ScheduleDTO scheduleDTO) {
+        if (BookingCalendar.recurrenceOf(scheduleDTO) == RecurrenceFrequency.NONE) {
+            return;
+        }
+        LocalDate end = scheduleDTO.getRecurrenceEnd();
+        if (Objects.isNull(end) || end.isBefore(scheduleDTO.getDate())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A recurring schedule needs a recurrenceEnd on or after its date");
+        }
+        if (end.isAfter(scheduleDTO.getDate().plusYears(MAX_SERIES_YEARS))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A recurring schedule may span at most " + MAX_SERIES_YEARS + " years");
+        }
+    }
+
+    /**
+     * Cancels or moves a single occurrence of a recurring schedule. Moving it back to its
+     * original date removes the override. The new date has to lie within the series' own
+     * span and is checked for conflicts like a new booking.
+     */
     @Override
-    public List<Schedule> getScheduleForPet(long petId) {
-        return scheduleRepository.findAllByPets_Id(petId);
+    public ScheduleOverrideDTO overrideOccurrence(long scheduleId, ScheduleOverrideDTO overrideDTO) {
+        Schedule series = scheduleRepository.findById(scheduleId).orElseThrow(EntityNotFoundException::new);
+        LocalDate original = overrideDTO.getOriginalDate();
+        if (series.getRecurrence() == RecurrenceFrequency.NONE || Objects.isNull(original)
+                || series.getRecurrence().occurrences(series.getDate(), series.getRecurrenceEnd(), original, original).isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Schedule " + scheduleId + " has no occurrence on " + original);
+        }
+        LocalDate date = overrideDTO.isCancelled() ? null : overrideDTO.getDate();
+        if (!overrideDTO.isCancelled() && (Objects.isNull(date) || date.isBefore(series.getDate()) || date.isAfter(series.getRecurrenceEnd()))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "An occurrence can only move within " + series.getDate() + " and " + series.getRecurrenceEnd());
+        }
+
+        Optional<ScheduleOverride> existing = overrideRepository.findByScheduleIdAndOriginalDate(scheduleId, original);
+        // where the occurrence is now: null once cancelled, so restoring it is conflict-checked like a move
+        LocalDate current = existing.isPresent() ? existing.get().getDate() : original;
+        List<Long> employeeIds = secondColumn(scheduleRepository.findEmployeeIds(Collections.singletonList(scheduleId)));
+        if (Objects.nonNull(date) && !date.equals(current)) {
+            List<Long> petIds = secondColumn(scheduleRepository.findPetIds(Collections.singletonList(scheduleId)));
+            bookingLocks.lockUntilCompletion(employeeIds, petIds);
+            Set<LocalDate> dates = Collections.singleton(date);
+            checkConflicts(employeeIds, petIds, date, workingDays(employeeIds),
+                    calendar.employeeBookings(employeeIds, dates), calendar.petBookings(petIds, dates));
+        }
+        if (original.equals(date)) {
+            existing.ifPresent(overrideRepository::delete);
+        } else {
+            ScheduleOverride override = existing.orElseGet(() -> {
+                ScheduleOverride created = new ScheduleOverride();
+                created.setSchedule(series);
+                created.setOriginalDate(original);
+                return created;
+            });
+            override.setDate(date);
+            overrideRepository.save(override);
+        }
+        utilization.recordMove(employeeIds, series.getActivities(), current, date);
+        // bumps the series version right away, which changes its ETags and serializes edits to one series
+        entityManager.lock(series, LockModeType.PESSIMISTIC_FORCE_INCREMENT);
+        bookingCounts.invalidateAfterCommit(Stream.of(original, current, date).filter(Objects::nonNull).collect(Collectors.toSet()));
+
+        ScheduleOverrideDTO result = new ScheduleOverrideDTO();
+        result.setOriginalDate(original);
+        result.setDate(date);
+        result.setCancelled(Objects.isNull(date));
+        return result;
+    }
+
+    /**
+     * Read from the employee rows rather than the in-memory availability index, which only
+     * knows about changes made through this instance.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<Long, Set<DayOfWeek>> workingDays(Collection<Long> employeeIds) {
+        Map<Long, Set<DayOfWeek>> days = new HashMap<>();
+        for (List<Long> chunk : Lists.partition(new ArrayList<>(employeeIds), IN_CLAUSE_LIMIT)) {
+            for (Object[] row : employeeRepository.findDaysAvailable(chunk)) {
+                days.put((Long) row[0], (Set<DayOfWeek>) row[1]);
+            }
+        }
+        return days;
     }
 
+    private static List<Long> secondColumn(List<Object[]> rows) {
+        return rows.stream().map(row -> (Long) row[1]).collect(Collectors.toList());
+    }
+
+    private static Set<Long> referencedIds(List<ScheduleDTO> scheduleDTOs, Function<ScheduleDTO, List<Long>> ids) {
+        return scheduleDTOs.stream().map(ids).filter(Objects::nonNull).flatMap(List::stream).collect(Collectors.toSet());
+    }
+
+    /**
+     * Referenced entities are fetched with one IN query per type. Only the owning side of the
+     * associations is set, so the pets' and employees' schedule collections are never loaded.
+     */
+    private Map<Long, Pet> petsById(List<ScheduleDTO> scheduleDTOs) {
+        return petRepository.findAllById(referencedIds(scheduleDTOs, ScheduleDTO::getPetIds)).stream()
+                .collect(Collectors.toMap(Pet::getId, Function.identity()));
+    }
+
+    private Map<Long, Employee> employeesById(List<ScheduleDTO> scheduleDTOs) {
+        return employeeRepository.findAllById(referencedIds(scheduleDTOs, ScheduleDTO::getEmployeeIds)).stream()
+                .collect(Collectors.toMap(Employee::getId, Function.identity()));
+    }
+
+    private static <T> List<T> resolve(List<Long> ids, Map<Long, T> entities) {
+        if (Objects.isNull(ids)) {
+            return new ArrayList<>();
+        }
+        return ids.stream().map(id -> {
+            T entity = entities.get(id);
+            if (Objects.isNull(entity)) {
+                throw new EntityNotFoundException(String.valueOf(id));
+            }
+            return entity;
+        }).collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<ScheduleDTO> getAllSchedule() {
+        return toDTOs(scheduleRepository.findAll());
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<ScheduleDTO> getSchedules(long afterId, int limit) {
+        return toDTOs(scheduleRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, limit)));
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<ScheduleDTO> getScheduleForPet(long petId) {
+        return calendar.expand(toDTOs(scheduleRepository.findAllByPets_Id(petId)), EARLIEST, LATEST);
+    }
+
+    @Transactional(readOnly = true)
     @Override
-    public List<Schedule> getScheduleForEmployee(long employeeId) {
-        return scheduleRepository.findAllByEmployees_Id(employeeId);
+    public List<ScheduleDTO> getScheduleForEmployee(long employeeId, LocalDate from, LocalDate to, int limit) {
+        // open bounds become the widest dates every database accepts, so the range stays index-friendly
+        LocalDate start = Objects.isNull(from) ? EARLIEST : from;
+        LocalDate end = Objects.isNull(to) ? LATEST : to;
+        // one-off schedules are paged by the database, recurring ones are few and expanded here
+        List<ScheduleDTO> schedules = new ArrayList<>(toDTOs(scheduleRepository.findAllByEmployeeId(employeeId, start, end, PageRequest.of(0, limit))));
+        schedules.addAll(toDTOs(scheduleRepository.findSeriesByEmployeeId(employeeId, start, end)));
+        List<ScheduleDTO> occurrences = calendar.expand(schedules, start, end);
+        return occurrences.size() > limit ? new ArrayList<>(occurrences.subList(0, limit)) : occurrences;
     }
 
+    /**
+     * Covers every schedule the listing could show regardless of its limit. Overrides bump the
+     * version of their series, so moving or cancelling an occurrence changes the tag too.
+     */
+    @Transactional(readOnly = true)
     @Override
-    public List<Schedule> getScheduleForCustomer(long customerId) {
-        Customer customer = customerRepository.getOne(customerId);
-        List<Pet> pets = customer.getPets();
-        return pets.stream().flatMap(pet -> scheduleRepository.findAllByPets_Id(pet.getId()).stream()).collect(Collectors.toList());
+    public String getScheduleForEmployeeETag(long employeeId, LocalDate from, LocalDate to) {
+        return ETags.summary(scheduleRepository.summarizeVersionsByEmployeeId(employeeId,
+                Objects.isNull(from) ? EARLIEST : from, Objects.isNull(to) ? LATEST : to));
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<ScheduleDTO> getScheduleForCustomer(long customerId, LocalDate from, LocalDate to) {
+        LocalDate start = Objects.isNull(from) ? EARLIEST : from;
+        LocalDate end = Objects.isNull(to) ? LATEST : to;
+        return calendar.expand(toDTOs(scheduleRepository.findAllByCustomerId(customerId, start, end)), start, end);
+    }
+
+    /**
+     * Fills in pet ids and employee ids with one query each per {@value #IN_CLAUSE_LIMIT}
+     * schedules instead of initializing two lazy collections per row.
+     */
+    private List<ScheduleDTO> toDTOs(List<Schedule> schedules) {
+        Map<Long, List<Long>> petIds = new HashMap<>();
+        Map<Long, List<Long>> employeeIds = new HashMap<>();
+        List<Long> scheduleIds = schedules.stream().map(Schedule::getId).collect(Collectors.toList());
+        for (List<Long> chunk : Lists.partition(scheduleIds, IN_CLAUSE_LIMIT)) {
+            for (Object[] row : scheduleRepository.findPetIds(chunk)) {
+                petIds.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((Long) row[1]);
+            }
+            for (Object[] row : scheduleRepository.findEmployeeIds(chunk)) {
+                employeeIds.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((Long) row[1]);
+            }
+        }
+        return schedules.stream().map(schedule -> mapper.toDTO(schedule,
+                petIds.getOrDefault(schedule.getId(), new ArrayList<>()),
+                employeeIds.getOrDefault(schedule.getId(), new ArrayList<>())))
+                .collect(Collectors.toList());
     }
 }
@@ -1,56 +1,99 @@
 package com.udacity.jdnd.course3.critter.service.impl;
 
+import com.google.common.collect.Lists;
+import com.udacity.jdnd.course3.critter.common.EnumSetMaskConverter;
 import com.udacity.jdnd.course3.critter.dao.CustomerRepository;
 import com.udacity.jdnd.course3.critter.dao.EmployeeRepository;
 import com.udacity.jdnd.course3.critter.dao.PetRepository;
 import com.udacity.jdnd.course3.critter.pet.Pet;
+import com.udacity.jdnd.course3.critter.service.AvailabilityIndexService;
 import com.udacity.jdnd.course3.critter.service.UserService;
 import com.udacity.jdnd.course3.critter.user.*;
-import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import javax.transaction.Transactional;
 import java.time.DayOfWeek;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class UserServiceImpl implements UserService {
-    private final ModelMapper mapper;
+    private static final int IN_CLAUSE_LIMIT = 1000;
+
+    private final CustomerMapper customerMapper;
+    private final EmployeeMapper employeeMapper;
     private final EmployeeRepository employeeRepository;
     private final CustomerRepository customerRepository;
     private final PetRepository petRepository;
+    private final AvailabilityIndexService availabilityIndex;
 
-    public UserServiceImpl(ModelMapper mapper, EmployeeRepository employeeRepository, CustomerRepository customerRepository, PetRepository petRepository) {
-        this.mapper = mapper;
+    public UserServiceImpl(CustomerMapper customerMapper, EmployeeMapper employeeMapper, EmployeeRepository employeeRepository, CustomerRepository customerRepository, PetRepository petRepository, AvailabilityIndexService availabilityIndex) {
+        this.customerMapper = customerMapper;
+        this.employeeMapper = employeeMapper;
         this.employeeRepository = employeeRepository;
         this.customerRepository = customerRepository;
         this.petRepository = petRepository;
+        this.availabilityIndex = availabilityIndex;
     }
 
     @Override
     public Customer saveCustomer(CustomerDTO customer) {
-        Customer cust = mapper.map(customer, Customer.class);
+        Customer cust = customerMapper.toEntity(customer);
+        if (Objects.nonNull(cust.getId())) {
+            customerRepository.findVersion(cust.getId()).ifPresent(cust::setVersion);
+        }
         return customerRepository.save(cust);
     }
 
+    @Transactional(readOnly = true)
+    @Override
+    public List<CustomerDTO> getAllCustomer() {
+        return withPetIds(customerRepository.findAllAsDTO());
+    }
+
+    @Transactional(readOnly = true)
     @Override
-    public List<Customer> getAllCustomer() {
-        return customerRepository.findAll();
+    public List<CustomerDTO> getCustomers(long afterId, int limit) {
+        return withPetIds(customerRepository.findPageAsDTO(afterId, PageRequest.of(0, limit)));
     }
 
+    @Transactional(readOnly = true)
     @Override
-    public Customer getOwnerByPet(long petId) {
-        return Optional.ofNullable(customerRepository.findByPet(petId)).orElseThrow(NoSuchElementException::new);
+    public CustomerDTO getOwnerByPet(long petId) {
+        CustomerDTO owner = Optional.ofNullable(customerRepository.findOwnerAsDTO(petId)).orElseThrow(NoSuchElementException::new);
+        return withPetIds(Collections.singletonList(owner)).get(0);
+    }
+
+    /**
+     * Fills in pet ids with one query per {@value #IN_CLAUSE_LIMIT} customers, without
+     * loading any {@code Pet} entities.
+     */
+    private List<CustomerDTO> withPetIds(List<CustomerDTO> customers) {
+        Map<Long, List<Long>> petIds = new HashMap<>();
+        List<Long> customerIds = new ArrayList<>(customers.size());
+        customers.forEach(customer -> customerIds.add(customer.getId()));
+        for (List<Long> chunk : Lists.partition(customerIds, IN_CLAUSE_LIMIT)) {
+            for (Object[] row : petRepository.findPetIdsByCustomerIds(chunk)) {
+                petIds.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((Long) row[1]);
+            }
+        }
+        customers.forEach(customer -> customer.setPetIds(petIds.getOrDefault(customer.getId(), new ArrayList<>())));
+        return customers;
     }
 
     @Override
     public Employee saveEmployee(EmployeeDTO employee) {
-        Employee empl = mapper.map(employee, Employee.class);
-        return employeeRepository.saveAndFlush(empl);
+        Employee empl = employeeMapper.toEntity(employee);
+        if (Objects.nonNull(empl.getId())) {
+            employeeRepository.findVersion(empl.getId()).ifPresent(empl::setVersion);
+        }
+        Employee saved = employeeRepository.saveAndFlush(empl);
+        availabilityIndex.index(saved.getId(), saved.getSkills(), saved.getDaysAvailable());
+        return saved;
     }
 
+    @Transactional(readOnly = true)
     @Override
     public Employee getEmployee(long employeeId) {
         return employeeRepository.getOne(employeeId);
@@ -61,11 +104,17 @@ public class UserServiceImpl implements UserService {
         Employee employee = employeeRepository.getOne(employeeId);
         employee.setDaysAvailable(daysAvailable);
         employeeRepository.save(employee);
+        availabilityIndex.updateDays(employeeId, daysAvailable);
     }
 
+    /**
+     * One scan of the employee table filtered on the skill and day masks, which also keeps the
+     * answer right for employees saved by other instances.
+     */
+    @Transactional(readOnly = true)
     @Override
     public List<Employee> findEmployeeByService(EmployeeRequestDTO employeeRequest) {
-        List<Employee> availableByDate = employeeRepository.findByDaysAvailable(employeeRequest.getDate().getDayOfWeek());
-        return availableByDate.stream().filter(e -> e.getSkills().containsAll(employeeRequest.getSkills())).collect(Collectors.toList());
+        return employeeRepository.findAvailable(EnumSetMaskConverter.bit(employeeRequest.getDate().getDayOfWeek()),
+                EnumSetMaskConverter.mask(employeeRequest.getSkills()));
     }
 }
@@ -0,0 +1,327 @@
+package com.udacity.jdnd.course3.critter.service.impl;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.udacity.jdnd.course3.critter.common.EnumSetMaskConverter;
+import com.udacity.jdnd.course3.critter.dao.BookingRollupRepository;
+import com.udacity.jdnd.course3.critter.dao.EmployeeRepository;
+import com.udacity.jdnd.course3.critter.dao.ScheduleRepository;
+import com.udacity.jdnd.course3.critter.schedule.RecurrenceFrequency;
+import com.udacity.jdnd.course3.critter.schedule.ScheduleDTO;
+import com.udacity.jdnd.course3.critter.service.UtilizationService;
+import com.udacity.jdnd.course3.critter.user.Employee;
+import com.udacity.jdnd.course3.critter.user.EmployeeSkill;
+import com.udacity.jdnd.course3.critter.utilization.BookingRollup;
+import com.udacity.jdnd.course3.critter.utilization.DailyUtilizationDTO;
+import com.udacity.jdnd.course3.critter.utilization.EmployeeUtilizationDTO;
+import com.udacity.jdnd.course3.critter.utilization.RollupRebuildReport;
+import lombok.EqualsAndHashCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityNotFoundException;
+import javax.persistence.PersistenceContext;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Rollup rows are only written by transactions holding the booking locks of their
+ * employees, which is what makes reading, adjusting and writing them back safe. A rebuild
+ * works through the employees in chunks on several threads, each chunk in its own
+ * transaction and under its employees' locks, so bookings made meanwhile are either already
+ * in the schedules it reads or wait and are added on top.
+ */
+@Service
+@Transactional
+public class UtilizationServiceImpl implements UtilizationService {
+    private static final Logger log = LoggerFactory.getLogger(UtilizationServiceImpl.class);
+    private static final int IN_CLAUSE_LIMIT = 1000;
+    private static final int MAX_RANGE_DAYS = 366;
+    private static final LocalDate EARLIEST = LocalDate.of(1000, 1, 1);
+    private static final LocalDate LATEST = LocalDate.of(9999, 12, 31);
+
+    private final BookingRollupRepository rollupRepository;
+    private final EmployeeRepository employeeRepository;
+    private final ScheduleRepository scheduleRepository;
+    private final BookingLocks bookingLocks;
+    private final BookingCalendar calendar;
+    private final TransactionTemplate transactionTemplate;
+    private final int rebuildThreads;
+    private final int rebuildChunkSize;
+    private final int batchSize;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public UtilizationServiceImpl(BookingRollupRepository rollupRepository, EmployeeRepository employeeRepository,
+                                  ScheduleRepository scheduleRepository, BookingLocks bookingLocks, BookingCalendar calendar,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${critter.utilization.rebuild-threads:4}") int rebuildThreads,
+                                  @Value("${critter.utilization.rebuild-chunk-size:100}") int rebuildChunkSize,
+                                  @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
+        this.rollupRepository = rollupRepository;
+        this.employeeRepository = employeeRepository;
+        this.scheduleRepository = scheduleRepository;
+        this.bookingLocks = bookingLocks;
+        this.calendar = calendar;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rebuildThreads = rebuildThreads;
+        this.rebuildChunkSize = Math.min(rebuildChunkSize, IN_CLAUSE_LIMIT);
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void recordBookings(List<ScheduleDTO> bookings) {
+        Map<RollupKey, Integer> deltas = new HashMap<>();
+        for (ScheduleDTO booking : bookings) {
+            for (LocalDate date : calendar.occurrences(booking)) {
+                add(deltas, booking.getEmployeeIds(), booking.getActivities(), date, 1);
+            }
+        }
+        apply(deltas);
+    }
+
+    @Override
+    public void recordMove(Collection<Long> employeeIds, Set<EmployeeSkill> activities, LocalDate from, LocalDate to) {
+        if (Objects.equals(from, to)) {
+            return;
+        }
+        Map<RollupKey, Integer> deltas = new HashMap<>();
+        if (Objects.nonNull(from)) {
+            add(deltas, employeeIds, activities, from, -1);
+        }
+        if (Objects.nonNull(to)) {
+            add(deltas, employeeIds, activities, to, 1);
+        }
+        apply(deltas);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public EmployeeUtilizationDTO getEmployeeUtilization(long employeeId, LocalDate from, LocalDate to) {
+        checkRange(from, to);
+        Employee employee = employeeRepository.findById(employeeId).orElseThrow(EntityNotFoundException::new);
+        Map<EmployeeSkill, Long> byActivity = new EnumMap<>(EmployeeSkill.class);
+        for (Object[] row : rollupRepository.sumByActivity(employeeId, from, to)) {
+            byActivity.put((EmployeeSkill) row[0], (Long) row[1]);
+        }
+        int workingDays = 0;
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            if (employee.getDaysAvailable().contains(date.getDayOfWeek())) {
+                workingDays++;
+            }
+        }
+        EmployeeUtilizationDTO utilization = new EmployeeUtilizationDTO();
+        utilization.setEmployeeId(employeeId);
+        utilization.setFrom(from);
+        utilization.setTo(to);
+        utilization.setWorkingDays(workingDays);
+        utilization.setBookedDays(rollupRepository.countBookedDays(employeeId, from, to));
+        utilization.setUtilization(ratio(utilization.getBookedDays(), workingDays));
+        utilization.setBookingsByActivity(byActivity);
+        return utilization;
+    }
+
+    /**
+     * Two grouped scans of the rollup rows in range plus one count of working employees per
+     * weekday in it.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public List<DailyUtilizationDTO> getDailyUtilization(LocalDate from, LocalDate to, EmployeeSkill activity) {
+        checkRange(from, to);
+        int skillMask = Objects.isNull(activity) ? 0 : EnumSetMaskConverter.bit(activity);
+        // every activity rather than an IS NULL branch, so the activity column stays usable in the index
+        Set<EmployeeSkill> activities = Objects.isNull(activity) ? EnumSet.allOf(EmployeeSkill.class) : EnumSet.of(activity);
+        Map<DayOfWeek, Long> available = new EnumMap<>(DayOfWeek.class);
+        Map<LocalDate, DailyUtilizationDTO> days = new LinkedHashMap<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            DailyUtilizationDTO day = new DailyUtilizationDTO();
+            day.setDate(date);
+            day.setAvailableEmployees(available.computeIfAbsent(date.getDayOfWeek(),
+                    weekday -> employeeRepository.countAvailable(EnumSetMaskConverter.bit(weekday), skillMask)));
+            day.setBookingsByActivity(new EnumMap<>(EmployeeSkill.class));
+            days.put(date, day);
+        }
+        for (Object[] row : rollupRepository.sumByDateAndActivity(from, to, activities)) {
+            days.get((LocalDate) row[0]).getBookingsByActivity().put((EmployeeSkill) row[1], (Long) row[2]);
+        }
+        for (Object[] row : rollupRepository.countBookedEmployeesByDate(from, to, activities)) {
+            days.get((LocalDate) row[0]).setBookedEmployees((Long) row[1]);
+        }
+        days.values().forEach(day -> day.setUtilization(ratio(day.getBookedEmployees(), day.getAvailableEmployees())));
+        return new ArrayList<>(days.values());
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Override
+    public RollupRebuildReport rebuild() {
+        long start = System.nanoTime();
+        List<Long> employeeIds = employeeRepository.findAllIds();
+        ExecutorService executor = Executors.newFixedThreadPool(rebuildThreads,
+                new ThreadFactoryBuilder().setNameFormat("rollup-rebuild-%d").build());
+        long rows = 0;
+        try {
+            List<Future<Integer>> chunks = new ArrayList<>();
+            for (List<Long> chunk : Lists.partition(employeeIds, rebuildChunkSize)) {
+                chunks.add(executor.submit(() -> transactionTemplate.execute(status -> rebuild(chunk))));
+            }
+            for (Future<Integer> chunk : chunks) {
+                rows += chunk.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while rebuilding booking rollups", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+                    : new IllegalStateException("Rebuilding booking rollups failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.info("Rebuilt {} booking rollup rows for {} employees on {} threads in {} ms", rows, employeeIds.size(), rebuildThreads, elapsedMillis);
+        return new RollupRebuildReport(employeeIds.size(), rows, rebuildThreads, elapsedMillis);
+    }
+
+    /**
+     * Replaces the chunk's rows with counts taken from its schedules, series expanded and
+     * overrides applied. Returns the number of rows written.
+     */
+    private int rebuild(List<Long> employeeIds) {
+        bookingLocks.lockUntilCompletion(employeeIds, Collections.emptyList());
+        rollupRepository.deleteByEmployeeIds(employeeIds);
+        Set<Long> chunk = new HashSet<>(employeeIds);
+        Map<Long, ScheduleDTO> schedules = new HashMap<>();
+        for (Object[] row : scheduleRepository.findEmployeeSchedules(employeeIds)) {
+            schedules.computeIfAbsent((Long) row[0], id -> {
+                ScheduleDTO schedule = new ScheduleDTO();
+                schedule.setId(id);
+                schedule.setDate((LocalDate) row[2]);
+                schedule.setRecurrence((RecurrenceFrequency) row[3]);
+                schedule.setRecurrenceEnd((LocalDate) row[4]);
+                @SuppressWarnings("unchecked")
+                Set<EmployeeSkill> activities = (Set<EmployeeSkill>) row[5];
+                schedule.setActivities(activities);
+                schedule.setEmployeeIds(new ArrayList<>());
+                return schedule;
+            }).getEmployeeIds().add((Long) row[1]);
+        }
+        Map<RollupKey, Integer> counts = new HashMap<>();
+        for (ScheduleDTO occurrence : calendar.expand(new ArrayList<>(schedules.values()), EARLIEST, LATEST)) {
+            List<Long> ownEmployees = occurrence.getEmployeeIds().stream().filter(chunk::contains).collect(Collectors.toList());
+            add(counts, ownEmployees, occurrence.getActivities(), occurrence.getDate(), 1);
+        }
+        int written = 0;
+        for (Map.Entry<RollupKey, Integer> count : counts.entrySet()) {
+            entityManager.persist(count.getKey().toRollup(count.getValue()));
+            if (++written % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Adjusts the stored counts by the deltas, creating and deleting rows as counts leave and
+     * return to zero. Existing rows are read with one query per {@value #IN_CLAUSE_LIMIT}
+     * employees and dates.
+     */
+    private void apply(Map<RollupKey, Integer> deltas) {
+        deltas.values().removeIf(delta -> delta == 0);
+        if (deltas.isEmpty()) {
+            return;
+        }
+        Set<Long> employeeIds = deltas.keySet().stream().map(key -> key.employeeId).collect(Collectors.toSet());
+        List<LocalDate> dates = deltas.keySet().stream().map(key -> key.date).distinct().sorted().collect(Collectors.toList());
+        bookingLocks.lockUntilCompletion(employeeIds, Collections.emptyList());
+
+        Map<RollupKey, BookingRollup> existing = new HashMap<>();
+        for (List<Long> idChunk : Lists.partition(new ArrayList<>(employeeIds), IN_CLAUSE_LIMIT)) {
+            for (List<LocalDate> dateChunk : Lists.partition(dates, IN_CLAUSE_LIMIT)) {
+                for (BookingRollup rollup : rollupRepository.findRollups(idChunk, dateChunk)) {
+                    existing.put(new RollupKey(rollup.getEmployeeId(), rollup.getDate(), rollup.getActivity()), rollup);
+                }
+            }
+        }
+        for (Map.Entry<RollupKey, Integer> delta : deltas.entrySet()) {
+            BookingRollup rollup = existing.get(delta.getKey());
+            if (Objects.isNull(rollup)) {
+                if (delta.getValue() > 0) {
+                    entityManager.persist(delta.getKey().toRollup(delta.getValue()));
+                } else {
+                    log.warn("No booking rollup to decrement for {}; rebuild the rollups to repair them", delta.getKey());
+                }
+            } else if (rollup.getBookings() + delta.getValue() > 0) {
+                rollup.setBookings(rollup.getBookings() + delta.getValue());
+            } else {
+                entityManager.remove(rollup);
+            }
+        }
+    }
+
+    private static void add(Map<RollupKey, Integer> deltas, Collection<Long> employeeIds, Set<EmployeeSkill> activities, LocalDate date, int delta) {
+        if (Objects.isNull(employeeIds) || Objects.isNull(activities)) {
+            return;
+        }
+        for (Long employeeId : employeeIds) {
+            for (EmployeeSkill activity : activities) {
+                deltas.merge(new RollupKey(employeeId, date, activity), delta, Integer::sum);
+            }
+        }
+    }
+
+    private static void checkRange(LocalDate from, LocalDate to) {
+        if (to.isBefore(from) || ChronoUnit.DAYS.between(from, to) >= MAX_RANGE_DAYS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "to must be on or after from and within " + MAX_RANGE_DAYS + " days of it");
+        }
+    }
+
+    private static double ratio(long part, long whole) {
+        return whole == 0 ? 0 : (double) part / whole;
+    }
+
+    @EqualsAndHashCode
+    private static class RollupKey {
+        private final long employeeId;
+        private final LocalDate date;
+        private final EmployeeSkill activity;
+
+        RollupKey(long employeeId, LocalDate date, EmployeeSkill activity) {
+            this.employeeId = employeeId;
+            this.date = date;
+            this.activity = activity;
+        }
+
+        BookingRollup toRollup(int bookings) {
+            BookingRollup rollup = new BookingRollup();
+            rollup.setEmployeeId(employeeId);
+            rollup.setDate(date);
+            rollup.setActivity(activity);
+            rollup.setBookings(bookings);
+            return rollup;
+        }
+
+        @Override
+        public String toString() {
+            return "employee " + employeeId + " on " + date + " for " + activity;
+        }
+    }
+}
@@ -3,6 +3,8 @@ package com.udacity.jdnd.course3.critter.user;
 import com.udacity.jdnd.course3.critter.pet.Pet;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.annotation.PostConstruct;
 import javax.persistence.*;
@@ -10,11 +12,14 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter
 @Setter
 public class Customer {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customer_seq")
+    @SequenceGenerator(name = "customer_seq", sequenceName = "customer_seq", allocationSize = 50)
     private Long id;
     @Column(length = 50, nullable = false)
     private String name;
@@ -22,6 +27,9 @@ public class Customer {
     private String phoneNumber;
     @Column
     private String notes;
-    @OneToMany(mappedBy = "customer", fetch = FetchType.EAGER)
+    @Version
+    private long version;
+    @OneToMany(mappedBy = "customer", fetch = FetchType.LAZY)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     private List<Pet> pets = new ArrayList<>();
 }
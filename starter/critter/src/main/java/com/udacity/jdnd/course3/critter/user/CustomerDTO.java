@@ -13,6 +13,19 @@ public class CustomerDTO {
     private String notes;
     private List<Long> petIds;
 
+    public CustomerDTO() {
+    }
+
+    /**
+     * Used by JPQL constructor projections; pet ids are filled in separately.
+     */
+    public CustomerDTO(long id, String name, String phoneNumber, String notes) {
+        this.id = id;
+        this.name = name;
+        this.phoneNumber = phoneNumber;
+        this.notes = notes;
+    }
+
     public long getId() {
         return id;
     }
@@ -0,0 +1,46 @@
+package com.udacity.jdnd.course3.critter.user;
+
+import com.udacity.jdnd.course3.critter.pet.Pet;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Converts between {@link Customer} and {@link CustomerDTO} with plain field copies, no reflection.
+ */
+@Component
+public class CustomerMapper {
+
+    public CustomerDTO toDTO(Customer customer) {
+        CustomerDTO dto = new CustomerDTO();
+        dto.setId(customer.getId());
+        dto.setName(customer.getName());
+        dto.setPhoneNumber(customer.getPhoneNumber());
+        dto.setNotes(customer.getNotes());
+        List<Pet> pets = customer.getPets();
+        List<Long> petIds = new ArrayList<>(Objects.isNull(pets) ? 0 : pets.size());
+        if (Objects.nonNull(pets)) {
+            for (Pet pet : pets) {
+                petIds.add(pet.getId());
+            }
+        }
+        dto.setPetIds(petIds);
+        return dto;
+    }
+
+    /**
+     * Pets are owned by the pet side of the relationship, so {@code petIds} are not copied.
+     */
+    public Customer toEntity(CustomerDTO dto) {
+        Customer customer = new Customer();
+        if (dto.getId() != 0) {
+            customer.setId(dto.getId());
+        }
+        customer.setName(dto.getName());
+        customer.setPhoneNumber(dto.getPhoneNumber());
+        customer.setNotes(dto.getNotes());
+        return customer;
+    }
+}
@@ -0,0 +1,13 @@
+package com.udacity.jdnd.course3.critter.user;
+
+import com.udacity.jdnd.course3.critter.common.EnumSetMaskConverter;
+
+import javax.persistence.Converter;
+import java.time.DayOfWeek;
+
+@Converter
+public class DaysOfWeekConverter extends EnumSetMaskConverter<DayOfWeek> {
+    public DaysOfWeekConverter() {
+        super(DayOfWeek.class);
+    }
+}
@@ -3,6 +3,8 @@ package com.udacity.jdnd.course3.critter.user;
 import com.udacity.jdnd.course3.critter.schedule.Schedule;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.annotation.PostConstruct;
 import javax.persistence.*;
@@ -13,20 +15,25 @@ import java.util.List;
 import java.util.Set;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter
 @Setter
 public class Employee {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "employee_seq")
+    @SequenceGenerator(name = "employee_seq", sequenceName = "employee_seq", allocationSize = 50)
     private Long id;
     @Column(length = 50, nullable = false)
     private String name;
-    @ElementCollection(targetClass = EmployeeSkill.class)
-    @Enumerated(EnumType.STRING)
+    @Convert(converter = EmployeeSkillsConverter.class)
+    @Column(nullable = false, columnDefinition = "int default 0")
     private Set<EmployeeSkill> skills;
-    @ElementCollection(targetClass = DayOfWeek.class)
-    @Enumerated(EnumType.STRING)
+    @Convert(converter = DaysOfWeekConverter.class)
+    @Column(nullable = false, columnDefinition = "int default 0")
     private Set<DayOfWeek> daysAvailable;
+    @Version
+    private long version;
     @ManyToMany(mappedBy = "employees")
     private List<Schedule> schedule = new ArrayList<>();
 
@@ -0,0 +1,38 @@
+package com.udacity.jdnd.course3.critter.user;
+
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Converts between {@link Employee} and {@link EmployeeDTO} with plain field copies, no reflection.
+ */
+@Component
+public class EmployeeMapper {
+
+    public EmployeeDTO toDTO(Employee employee) {
+        EmployeeDTO dto = new EmployeeDTO();
+        dto.setId(employee.getId());
+        dto.setName(employee.getName());
+        dto.setSkills(copy(employee.getSkills()));
+        dto.setDaysAvailable(copy(employee.getDaysAvailable()));
+        return dto;
+    }
+
+    public Employee toEntity(EmployeeDTO dto) {
+        Employee employee = new Employee();
+        if (dto.getId() != 0) {
+            employee.setId(dto.getId());
+        }
+        employee.setName(dto.getName());
+        employee.setSkills(copy(dto.getSkills()));
+        employee.setDaysAvailable(copy(dto.getDaysAvailable()));
+        return employee;
+    }
+
+    private static <T> Set<T> copy(Set<T> values) {
+        return Objects.isNull(values) ? null : new HashSet<>(values);
+    }
+}
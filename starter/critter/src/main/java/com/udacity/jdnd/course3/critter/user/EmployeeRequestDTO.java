@@ -2,6 +2,7 @@ package com.udacity.jdnd.course3.critter.user;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.springframework.format.annotation.DateTimeFormat;
 
 import java.time.LocalDate;
 import java.util.Set;
@@ -10,5 +11,6 @@ import java.util.Set;
 @Setter
 public class EmployeeRequestDTO {
     private Set<EmployeeSkill> skills;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
     private LocalDate date;
 }
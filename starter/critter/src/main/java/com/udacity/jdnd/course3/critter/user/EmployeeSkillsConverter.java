@@ -0,0 +1,12 @@
+package com.udacity.jdnd.course3.critter.user;
+
+import com.udacity.jdnd.course3.critter.common.EnumSetMaskConverter;
+
+import javax.persistence.Converter;
+
+@Converter
+public class EmployeeSkillsConverter extends EnumSetMaskConverter<EmployeeSkill> {
+    public EmployeeSkillsConverter() {
+        super(EmployeeSkill.class);
+    }
+}
@@ -1,28 +1,32 @@
 package com.udacity.jdnd.course3.critter.user;
 
-import com.udacity.jdnd.course3.critter.pet.Pet;
+import com.udacity.jdnd.course3.critter.common.BlockingController;
+import com.udacity.jdnd.course3.critter.common.CursorPage;
 import com.udacity.jdnd.course3.critter.service.UserService;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.BeanUtils;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.DayOfWeek;
-import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 @RestController
+@BlockingController
 @RequestMapping("/user")
 public class UserController {
     private final UserService userService;
-    private final ModelMapper mapper;
+    private final CustomerMapper customerMapper;
+    private final EmployeeMapper employeeMapper;
 
-    public UserController(UserService userService, ModelMapper mapper) {
+    public UserController(UserService userService, CustomerMapper customerMapper, EmployeeMapper employeeMapper) {
         this.userService = userService;
-        this.mapper = mapper;
+        this.customerMapper = customerMapper;
+        this.employeeMapper = employeeMapper;
     }
 
     @PostMapping("/customer")
@@ -32,25 +36,32 @@ public class UserController {
     }
 
     @GetMapping("/customer")
+    public CursorPage<CustomerDTO> getCustomers(@RequestParam(required = false) String cursor,
+                                                @RequestParam(required = false) Integer limit) {
+        int pageSize = CursorPage.limit(limit);
+        List<CustomerDTO> customers = userService.getCustomers(CursorPage.decode(cursor), pageSize + 1);
+        return CursorPage.of(customers, pageSize, CustomerDTO::getId, Function.identity());
+    }
+
+    @GetMapping(value = "/customer", params = "unpaged=true")
     public List<CustomerDTO> getAllCustomers(){
-        return userService.getAllCustomer().stream().map(this::buildCustomerResponse).collect(Collectors.toList());
+        return userService.getAllCustomer();
     }
 
     @GetMapping("/customer/pet/{petId}")
     public CustomerDTO getOwnerByPet(@PathVariable long petId){
-        Customer owner = userService.getOwnerByPet(petId);
-        return buildCustomerResponse(owner);
+        return userService.getOwnerByPet(petId);
     }
 
     @PostMapping("/employee")
     public EmployeeDTO saveEmployee(@RequestBody EmployeeDTO e) {
         Employee emp = userService.saveEmployee(e);
-        return mapper.map(emp, EmployeeDTO.class);
+        return employeeMapper.toDTO(emp);
     }
 
     @PostMapping("/employee/{employeeId}")
     public EmployeeDTO getEmployee(@PathVariable long employeeId) {
-        return mapper.map(userService.getEmployee(employeeId), EmployeeDTO.class);
+        return employeeMapper.toDTO(userService.getEmployee(employeeId));
     }
 
     @PutMapping("/employee/{employeeId}")
@@ -58,17 +69,19 @@ public class UserController {
         userService.setAvailability(daysAvailable, employeeId);
     }
 
+    /**
+     * Takes {@code skills} and {@code date} as query parameters, e.g.
+     * {@code ?skills=PETTING,FEEDING&date=2019-12-25}, so the response can be cached by URL.
+     */
     @GetMapping("/employee/availability")
-    public List<EmployeeDTO> findEmployeesForService(@RequestBody EmployeeRequestDTO e) {
-        return userService.findEmployeeByService(e).stream().map(employee -> mapper.map(employee, EmployeeDTO.class)).collect(Collectors.toList());
+    public List<EmployeeDTO> findEmployeesForService(EmployeeRequestDTO e) {
+        if (Objects.isNull(e.getDate()) || Objects.isNull(e.getSkills())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Both skills and date are required");
+        }
+        return userService.findEmployeeByService(e).stream().map(employeeMapper::toDTO).collect(Collectors.toList());
     }
 
     private CustomerDTO buildCustomerResponse(Customer owner) {
-        CustomerDTO response = mapper.map(owner, CustomerDTO.class);
-        List<Pet> pets = owner.getPets();
-        Stream<Pet> petStream = Optional.ofNullable(pets).map(Collection::stream).orElseGet(Stream::empty);
-        List<Long> petIds = petStream.map(Pet::getId).collect(Collectors.toList());
-        response.setPetIds(petIds);
-        return response;
+        return customerMapper.toDTO(owner);
     }
 }
@@ -0,0 +1,34 @@
+package com.udacity.jdnd.course3.critter.utilization;
+
+import com.udacity.jdnd.course3.critter.user.EmployeeSkill;
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * How many bookings an employee has for one activity on one date, occurrences of recurring
+ * schedules included and overrides applied. Rows are kept in step with bookings in the
+ * booking's own transaction; rows that drop to zero are deleted.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_booking_rollup", columnNames = {"employee_id", "date", "activity"}),
+        indexes = @Index(name = "idx_booking_rollup_date", columnList = "date, activity, employee_id"))
+@Getter
+@Setter
+public class BookingRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "booking_rollup_seq")
+    @SequenceGenerator(name = "booking_rollup_seq", sequenceName = "booking_rollup_seq", allocationSize = 50)
+    private long id;
+    @Column(name = "employee_id", nullable = false)
+    private long employeeId;
+    @Column(nullable = false)
+    private LocalDate date;
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16, nullable = false)
+    private EmployeeSkill activity;
+    @Column(nullable = false)
+    private int bookings;
+}
@@ -0,0 +1,22 @@
+package com.udacity.jdnd.course3.critter.utilization;
+
+import com.udacity.jdnd.course3.critter.user.EmployeeSkill;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Bookings on one date against the employees working that weekday, restricted to one
+ * activity and the employees with that skill when an activity was asked for.
+ */
+@Getter
+@Setter
+public class DailyUtilizationDTO {
+    private LocalDate date;
+    private long availableEmployees;
+    private long bookedEmployees;
+    private double utilization;
+    private Map<EmployeeSkill, Long> bookingsByActivity;
+}
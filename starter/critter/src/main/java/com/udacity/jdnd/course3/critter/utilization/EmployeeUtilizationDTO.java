@@ -0,0 +1,24 @@
+package com.udacity.jdnd.course3.critter.utilization;
+
+import com.udacity.jdnd.course3.critter.user.EmployeeSkill;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * One employee's bookings in [from, to]. Working days are the dates in the range that fall
+ * on one of the employee's current days available.
+ */
+@Getter
+@Setter
+public class EmployeeUtilizationDTO {
+    private long employeeId;
+    private LocalDate from;
+    private LocalDate to;
+    private int workingDays;
+    private long bookedDays;
+    private double utilization;
+    private Map<EmployeeSkill, Long> bookingsByActivity;
+}
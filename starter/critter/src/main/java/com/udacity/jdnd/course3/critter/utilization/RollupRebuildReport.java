@@ -0,0 +1,18 @@
+package com.udacity.jdnd.course3.critter.utilization;
+
+import lombok.Getter;
+
+@Getter
+public class RollupRebuildReport {
+    private final long employees;
+    private final long rows;
+    private final int threads;
+    private final long elapsedMillis;
+
+    public RollupRebuildReport(long employees, long rows, int threads, long elapsedMillis) {
+        this.employees = employees;
+        this.rows = rows;
+        this.threads = threads;
+        this.elapsedMillis = elapsedMillis;
+    }
+}
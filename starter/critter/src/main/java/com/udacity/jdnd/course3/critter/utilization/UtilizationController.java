@@ -0,0 +1,48 @@
+package com.udacity.jdnd.course3.critter.utilization;
+
+import com.udacity.jdnd.course3.critter.common.BlockingController;
+import com.udacity.jdnd.course3.critter.service.UtilizationService;
+import com.udacity.jdnd.course3.critter.user.EmployeeSkill;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Booking counts read from the rollup table, so each answer costs one index range scan over
+ * the requested dates however many schedules exist.
+ */
+@RestController
+@BlockingController
+@RequestMapping("/utilization")
+public class UtilizationController {
+    private final UtilizationService utilizationService;
+
+    public UtilizationController(UtilizationService utilizationService) {
+        this.utilizationService = utilizationService;
+    }
+
+    @GetMapping("/employee/{employeeId}")
+    public EmployeeUtilizationDTO getEmployeeUtilization(@PathVariable long employeeId,
+                                                         @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                         @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return utilizationService.getEmployeeUtilization(employeeId, from, to);
+    }
+
+    @GetMapping("/daily")
+    public List<DailyUtilizationDTO> getDailyUtilization(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                         @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                         @RequestParam(required = false) EmployeeSkill activity) {
+        return utilizationService.getDailyUtilization(from, to, activity);
+    }
+
+    /**
+     * Recomputes every rollup row from the schedules, for after a bulk change made outside
+     * the application or to repair drift. Bookings keep working while it runs.
+     */
+    @PostMapping("/rebuild")
+    public RollupRebuildReport rebuild() {
+        return utilizationService.rebuild();
+    }
+}
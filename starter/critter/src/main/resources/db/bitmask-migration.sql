@@ -0,0 +1,56 @@
+-- Copies Employee.skills, Employee.daysAvailable and Schedule.activities from the
+-- @ElementCollection tables they used to live in into the int mask columns that replaced them.
+--
+-- Run it once, after starting the new version against the database so ddl-auto=update has
+-- added the mask columns (default 0), and before anything has been booked or edited. Rows
+-- whose mask is already non-zero are left alone, so running it again does no harm.
+--
+-- Each enum name maps to bit 1 << ordinal(), matching EnumSetMaskConverter:
+--   EmployeeSkill  PETTING 1, WALKING 2, FEEDING 4, MEDICATING 8, SHAVING 16
+--   DayOfWeek      MONDAY 1, TUESDAY 2, WEDNESDAY 4, THURSDAY 8, FRIDAY 16, SATURDAY 32, SUNDAY 64
+-- The old tables keyed each row on (owner id, name), so summing the bits cannot count one twice.
+
+UPDATE employee SET skills = (
+    SELECT COALESCE(SUM(CASE s.skills
+        WHEN 'PETTING' THEN 1
+        WHEN 'WALKING' THEN 2
+        WHEN 'FEEDING' THEN 4
+        WHEN 'MEDICATING' THEN 8
+        WHEN 'SHAVING' THEN 16
+        ELSE 0 END), 0)
+    FROM employee_skills s
+    WHERE s.employee_id = employee.id)
+WHERE skills = 0;
+
+UPDATE employee SET days_available = (
+    SELECT COALESCE(SUM(CASE d.days_available
+        WHEN 'MONDAY' THEN 1
+        WHEN 'TUESDAY' THEN 2
+        WHEN 'WEDNESDAY' THEN 4
+        WHEN 'THURSDAY' THEN 8
+        WHEN 'FRIDAY' THEN 16
+        WHEN 'SATURDAY' THEN 32
+        WHEN 'SUNDAY' THEN 64
+        ELSE 0 END), 0)
+    FROM employee_days_available d
+    WHERE d.employee_id = employee.id)
+WHERE days_available = 0;
+
+UPDATE schedule SET activities = (
+    SELECT COALESCE(SUM(CASE a.activities
+        WHEN 'PETTING' THEN 1
+        WHEN 'WALKING' THEN 2
+        WHEN 'FEEDING' THEN 4
+        WHEN 'MEDICATING' THEN 8
+        WHEN 'SHAVING' THEN 16
+        ELSE 0 END), 0)
+    FROM schedule_activities a
+    WHERE a.schedule_id = schedule.id)
+WHERE activities = 0;
+
+-- The availability index and the booking rollups are built from these columns, so restart the
+-- application (or POST /utilization/rebuild) once the copy is committed. Drop the old tables
+-- only after checking the copied masks:
+-- DROP TABLE employee_skills;
+-- DROP TABLE employee_days_available;
+-- DROP TABLE schedule_activities;
@@ -0,0 +1,21 @@
+-- Moves id generation for customers, pets, employees and schedules from the shared
+-- hibernate_sequence onto the per-entity customer_seq, pet_seq, employee_seq and schedule_seq.
+--
+-- ddl-auto=update creates the new generators starting at 1, below ids already handed out by
+-- hibernate_sequence, so new inserts would collide with existing rows. Run this once after
+-- the first start on the new version and before anything is saved. On MySQL, which has no
+-- sequences, Hibernate keeps each generator as a one-row table with a next_val column.
+--
+-- The generators hand out blocks of 50 (allocationSize) ending at the value they read, so
+-- next_val is set to MAX(id) + 51 and the first block starts above every existing id.
+-- GREATEST never moves a generator back, so running the script again does no harm.
+-- booking_rollup_seq is left alone; its table was created together with it.
+
+UPDATE customer_seq SET next_val = GREATEST(next_val, (SELECT COALESCE(MAX(id), 0) + 51 FROM customer));
+UPDATE pet_seq SET next_val = GREATEST(next_val, (SELECT COALESCE(MAX(id), 0) + 51 FROM pet));
+UPDATE employee_seq SET next_val = GREATEST(next_val, (SELECT COALESCE(MAX(id), 0) + 51 FROM employee));
+UPDATE schedule_seq SET next_val = GREATEST(next_val, (SELECT COALESCE(MAX(id), 0) + 51 FROM schedule));
+
+-- On a database with real sequences (PostgreSQL, H2) restart each one instead, e.g.
+-- ALTER SEQUENCE customer_seq RESTART WITH <MAX(id) + 51>;
+-- hibernate_sequence is still used by entities without a generator of their own, so keep it.
@@ -0,0 +1,154 @@
+package com.udacity.jdnd.course3.critter;
+
+import com.udacity.jdnd.course3.critter.common.BlockingController;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.AsyncListener;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs with {@code critter.async.enabled} on a single blocking thread and no queue, so one
+ * request in flight uses the only permit. {@link HeldController} keeps a request running until
+ * the test lets it go.
+ */
+@SpringBootTest(classes = {CritterApplication.class, BlockingExecutionTest.HeldController.class}, properties = {
+        "critter.async.enabled=true",
+        "critter.async.threads=1",
+        "critter.async.queue-capacity=0"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+public class BlockingExecutionTest {
+    private static volatile CountDownLatch held = new CountDownLatch(0);
+    private static volatile CountDownLatch entered = new CountDownLatch(0);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @AfterEach
+    public void releaseHeldRequests() throws Exception {
+        held.countDown();
+        awaitFreePermit();
+    }
+
+    @Test
+    public void testBlockingControllersRunOnTheBlockingPool() throws Exception {
+        MvcResult thread = mockMvc.perform(get("/held/thread"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(thread))
+                .andExpect(status().isOk())
+                .andExpect(content().string(startsWith("blocking-")));
+
+        MvcResult customers = mockMvc.perform(get("/user/customer"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(customers))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void testRejectsWith503OnceThreadsAndQueueAreFull() throws Exception {
+        held = new CountDownLatch(1);
+        MvcResult first = mockMvc.perform(get("/held")).andExpect(request().asyncStarted()).andReturn();
+
+        mockMvc.perform(get("/user/customer"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isServiceUnavailable());
+
+        held.countDown();
+        mockMvc.perform(asyncDispatch(first))
+                .andExpect(status().isOk())
+                .andExpect(content().string("released"));
+        awaitFreePermit();
+        MvcResult next = mockMvc.perform(get("/user/customer")).andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(next)).andExpect(status().isOk());
+    }
+
+    @Test
+    public void testTimedOutRequestsAnswer503AndFreeTheirPermit() throws Exception {
+        held = new CountDownLatch(1);
+        entered = new CountDownLatch(1);
+        MvcResult result = mockMvc.perform(get("/held")).andExpect(request().asyncStarted()).andReturn();
+        // a task cancelled before it starts is only completed by a real container, so let it start
+        Assertions.assertTrue(entered.await(5, TimeUnit.SECONDS), "handler never started");
+
+        // MockMvc has no container to time the request out, so fire the timeout the container would
+        for (AsyncListener listener : ((MockAsyncContext) result.getRequest().getAsyncContext()).getListeners()) {
+            listener.onTimeout(null);
+        }
+        // the timeout interrupts the held handler, and MockMvc records a result once it returns
+        awaitAsyncResult(result);
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isServiceUnavailable());
+
+        awaitFreePermit();
+        MvcResult next = mockMvc.perform(get("/user/customer")).andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(next)).andExpect(status().isOk());
+    }
+
+    private static void awaitAsyncResult(MvcResult result) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            try {
+                result.getAsyncResult(10);
+                return;
+            } catch (IllegalStateException notYet) {
+                Assertions.assertTrue(System.nanoTime() < deadline, "handler never returned");
+            }
+        }
+    }
+
+    /**
+     * The permit goes back just after the handler returns, on the blocking thread, so wait for
+     * a request that is not turned away.
+     */
+    private void awaitFreePermit() throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            MvcResult probe = mockMvc.perform(get("/held/thread")).andReturn();
+            if (probe.getRequest().isAsyncStarted()) {
+                mockMvc.perform(asyncDispatch(probe));
+                return;
+            }
+            Assertions.assertTrue(System.nanoTime() < deadline, "permit was never released");
+            Thread.sleep(10);
+        }
+    }
+
+    @RestController
+    @BlockingController
+    public static class HeldController {
+
+        @GetMapping("/held")
+        public String held() throws InterruptedException {
+            entered.countDown();
+            return held.await(10, TimeUnit.SECONDS) ? "released" : "timed out";
+        }
+
+        @GetMapping("/held/thread")
+        public String thread() {
+            return Thread.currentThread().getName();
+        }
+    }
+}
@@ -1,29 +1,64 @@
 package com.udacity.jdnd.course3.critter;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.udacity.jdnd.course3.critter.cache.CacheStatsController;
+import com.udacity.jdnd.course3.critter.common.CursorPage;
+import com.udacity.jdnd.course3.critter.export.ExportController;
+import com.udacity.jdnd.course3.critter.importer.ImportController;
+import com.udacity.jdnd.course3.critter.importer.ImportReport;
+import com.udacity.jdnd.course3.critter.metrics.RequestStats;
 import com.udacity.jdnd.course3.critter.pet.PetController;
 import com.udacity.jdnd.course3.critter.pet.PetDTO;
 import com.udacity.jdnd.course3.critter.pet.PetType;
+import com.udacity.jdnd.course3.critter.schedule.AutoScheduleRequestDTO;
+import com.udacity.jdnd.course3.critter.schedule.RecurrenceFrequency;
 import com.udacity.jdnd.course3.critter.schedule.ScheduleController;
+import com.udacity.jdnd.course3.critter.schedule.ScheduleConflictException;
 import com.udacity.jdnd.course3.critter.schedule.ScheduleDTO;
+import com.udacity.jdnd.course3.critter.schedule.ScheduleOverrideDTO;
 import com.udacity.jdnd.course3.critter.user.*;
+import org.hibernate.SessionFactory;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @Transactional
 @SpringBootTest(classes = CritterApplication.class)
+@AutoConfigureMockMvc
 @AutoConfigureTestDatabase(replace= AutoConfigureTestDatabase.Replace.ANY)
 public class CritterFunctionalTest {
 
@@ -36,6 +71,27 @@ public class CritterFunctionalTest {
     @Autowired
     private ScheduleController scheduleController;
 
+    @Autowired
+    private ExportController exportController;
+
+    @Autowired
+    private ImportController importController;
+
+    @Autowired
+    private CacheStatsController cacheStatsController;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     @Test
     public void testCreateCustomer(){
         CustomerDTO c = createCustomerDTO();
@@ -78,6 +134,26 @@ public class CritterFunctionalTest {
         Assertions.assertEquals(rc.getPetIds().get(0), rp.getId());
     }
 
+    @Test
+    public void testPagePetsByCursor() {
+        CustomerDTO nc = userController.saveCustomer(createCustomerDTO());
+        List<Long> petIds = IntStream.range(0, 5).mapToObj(i -> {
+            PetDTO p = createPetDTO();
+            p.setOwnerId(nc.getId());
+            return petController.savePet(p).getId();
+        }).collect(Collectors.toList());
+
+        CursorPage<PetDTO> first = petController.getPets(null, 3);
+        Assertions.assertEquals(3, first.getItems().size());
+        Assertions.assertNotNull(first.getNextCursor());
+
+        CursorPage<PetDTO> second = petController.getPets(first.getNextCursor(), 3);
+        Assertions.assertNull(second.getNextCursor());
+        List<Long> pagedIds = Stream.concat(first.getItems().stream(), second.getItems().stream())
+                .map(PetDTO::getId).collect(Collectors.toList());
+        Assertions.assertEquals(petIds, pagedIds);
+    }
+
     @Test
     public void testFindPetsByOwner() {
         CustomerDTO c = createCustomerDTO();
@@ -109,6 +185,37 @@ public class CritterFunctionalTest {
         Assertions.assertEquals(owner.getPetIds().get(0), newPet.getId());
     }
 
+    @Test
+    public void testCustomerListingsCarryPetIds() throws Exception {
+        long withPets = userController.saveCustomer(createCustomerDTO()).getId();
+        long withoutPets = userController.saveCustomer(createCustomerDTO()).getId();
+        List<Long> petIds = IntStream.range(0, 2).mapToObj(i -> {
+            PetDTO p = createPetDTO();
+            p.setOwnerId(withPets);
+            return petController.savePet(p).getId();
+        }).collect(Collectors.toList());
+        // Customer.pets is lazy, so read back without the entities saved above in the session
+        entityManager.flush();
+        entityManager.clear();
+
+        mockMvc.perform(get("/user/customer"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(withPets))
+                .andExpect(jsonPath("$.items[0].petIds[0]").value(petIds.get(0)))
+                .andExpect(jsonPath("$.items[0].petIds[1]").value(petIds.get(1)))
+                .andExpect(jsonPath("$.items[1].id").value(withoutPets))
+                .andExpect(jsonPath("$.items[1].petIds.length()").value(0));
+        mockMvc.perform(get("/user/customer").param("unpaged", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].petIds.length()").value(2))
+                .andExpect(jsonPath("$[1].petIds.length()").value(0));
+        mockMvc.perform(get("/user/customer/pet/" + petIds.get(1)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(withPets))
+                .andExpect(jsonPath("$.petIds[0]").value(petIds.get(0)))
+                .andExpect(jsonPath("$.petIds[1]").value(petIds.get(1)));
+    }
+
     @Test
     public void testChangeEmployeeAvailability() {
         EmployeeDTO e = createEmployeeDTO();
@@ -157,10 +264,27 @@ public class CritterFunctionalTest {
         Assertions.assertEquals(eIds2, eIds2expected);
     }
 
+    @Test
+    public void testFindEmployeesAfterAvailabilityChange() {
+        EmployeeDTO e = createEmployeeDTO();
+        e.setDaysAvailable(Sets.newHashSet(DayOfWeek.MONDAY));
+        EmployeeDTO ne = userController.saveEmployee(e);
+
+        EmployeeRequestDTO er = new EmployeeRequestDTO();
+        er.setDate(LocalDate.of(2019, 12, 24));
+        er.setSkills(Sets.newHashSet(EmployeeSkill.FEEDING));
+        Assertions.assertTrue(userController.findEmployeesForService(er).isEmpty());
+
+        userController.setAvailability(Sets.newHashSet(DayOfWeek.TUESDAY), ne.getId());
+        List<EmployeeDTO> found = userController.findEmployeesForService(er);
+        Assertions.assertEquals(1, found.size());
+        Assertions.assertEquals(ne.getId(), found.get(0).getId());
+    }
+
     @Test
     public void testSchedulePetsForServiceWithEmployee() {
         EmployeeDTO employeeTemp = createEmployeeDTO();
-        employeeTemp.setDaysAvailable(Sets.newHashSet(DayOfWeek.MONDAY, DayOfWeek.TUESDAY, DayOfWeek.WEDNESDAY));
+        employeeTemp.setDaysAvailable(Sets.newHashSet(DayOfWeek.MONDAY, DayOfWeek.TUESDAY, DayOfWeek.THURSDAY));
         EmployeeDTO e = userController.saveEmployee(employeeTemp);
         CustomerDTO c = userController.saveCustomer(createCustomerDTO());
         PetDTO petTemp = createPetDTO();
@@ -181,6 +305,448 @@ public class CritterFunctionalTest {
         Assertions.assertEquals(scheduleDTO.getPetIds(), petList);
     }
 
+    @Test
+    public void testCreateSchedulesInBatch() {
+        EmployeeDTO employeeTemp = createEmployeeDTO();
+        employeeTemp.setDaysAvailable(Sets.newHashSet(DayOfWeek.MONDAY));
+        EmployeeDTO e = userController.saveEmployee(employeeTemp);
+        CustomerDTO c = userController.saveCustomer(createCustomerDTO());
+        PetDTO petTemp = createPetDTO();
+        petTemp.setOwnerId(c.getId());
+        PetDTO p = petController.savePet(petTemp);
+
+        List<ScheduleDTO> requests = IntStream.range(0, 120)
+                .mapToObj(i -> createScheduleDTO(Lists.newArrayList(p.getId()), Lists.newArrayList(e.getId()),
+                        LocalDate.of(2024, 1, 1).plusWeeks(i), Sets.newHashSet(EmployeeSkill.FEEDING)))
+                .collect(Collectors.toList());
+        // ids sent by the client never pick the row a new schedule goes into
+        requests.get(1).setId(12345);
+        List<ScheduleDTO> created = scheduleController.createSchedules(requests);
+        Assertions.assertEquals(120, created.size());
+        Assertions.assertEquals(120, created.stream().map(ScheduleDTO::getId).distinct().count());
+
+        List<ScheduleDTO> forPet = scheduleController.getScheduleForPet(p.getId());
+        Assertions.assertEquals(120, forPet.size());
+        compareSchedules(requests.get(0), forPet.get(0));
+
+        ScheduleDTO reusedId = createScheduleDTO(Lists.newArrayList(p.getId()), Lists.newArrayList(e.getId()),
+                LocalDate.of(2024, 1, 1).plusWeeks(120), Sets.newHashSet(EmployeeSkill.FEEDING));
+        reusedId.setId(created.get(0).getId());
+        Assertions.assertNotEquals(created.get(0).getId(), scheduleController.createSchedule(reusedId).getId());
+        forPet = scheduleController.getScheduleForPet(p.getId());
+        Assertions.assertEquals(121, forPet.size());
+        compareSchedules(requests.get(0), forPet.get(0));
+    }
+
+    @Test
+    public void testRejectConflictingSchedules() {
+        ScheduleDTO booked = populateSchedule(1, 1, LocalDate.of(2023, 5, 1), Sets.newHashSet(EmployeeSkill.FEEDING));
+        Long employeeId = booked.getEmployeeIds().get(0);
+
+        CustomerDTO c = userController.saveCustomer(createCustomerDTO());
+        PetDTO petTemp = createPetDTO();
+        petTemp.setOwnerId(c.getId());
+        PetDTO otherPet = petController.savePet(petTemp);
+
+        Assertions.assertThrows(ScheduleConflictException.class, () -> scheduleController.createSchedule(
+                createScheduleDTO(Lists.newArrayList(otherPet.getId()), Lists.newArrayList(employeeId), booked.getDate(), booked.getActivities())));
+        Assertions.assertThrows(ScheduleConflictException.class, () -> scheduleController.createSchedule(
+                createScheduleDTO(booked.getPetIds(), Collections.emptyList(), booked.getDate(), booked.getActivities())));
+        Assertions.assertThrows(ScheduleConflictException.class, () -> scheduleController.createSchedule(
+                createScheduleDTO(Lists.newArrayList(otherPet.getId()), Lists.newArrayList(employeeId), booked.getDate().plusDays(1), booked.getActivities())));
+
+        ScheduleDTO nextWeek = createScheduleDTO(Lists.newArrayList(otherPet.getId()), Lists.newArrayList(employeeId), booked.getDate().plusWeeks(1), booked.getActivities());
+        Assertions.assertThrows(ScheduleConflictException.class, () -> scheduleController.createSchedules(Lists.newArrayList(nextWeek, nextWeek)));
+        Assertions.assertEquals(1, scheduleController.getScheduleForEmployee(employeeId, null, null, null).getBody().size());
+    }
+
+    @Test
+    public void testAutoScheduleChoosesFewestEmployees() {
+        long both = saveEmployee(Sets.newHashSet(EmployeeSkill.FEEDING, EmployeeSkill.PETTING), DayOfWeek.MONDAY);
+        long feeder = saveEmployee(Sets.newHashSet(EmployeeSkill.FEEDING), DayOfWeek.MONDAY);
+        saveEmployee(Sets.newHashSet(EmployeeSkill.PETTING), DayOfWeek.MONDAY);
+        long walker = saveEmployee(Sets.newHashSet(EmployeeSkill.WALKING), DayOfWeek.MONDAY);
+        saveEmployee(Sets.newHashSet(EmployeeSkill.WALKING, EmployeeSkill.FEEDING), DayOfWeek.TUESDAY);
+
+        CustomerDTO c = userController.saveCustomer(createCustomerDTO());
+        List<Long> petIds = IntStream.range(0, 2).mapToObj(i -> {
+            PetDTO pet = createPetDTO();
+            pet.setOwnerId(c.getId());
+            return petController.savePet(pet).getId();
+        }).collect(Collectors.toList());
+        LocalDate monday = LocalDate.of(2024, 6, 3);
+
+        ScheduleDTO first = scheduleController.autoSchedule(createAutoScheduleRequest(petIds.get(0), monday, EmployeeSkill.FEEDING, EmployeeSkill.PETTING));
+        Assertions.assertEquals(Lists.newArrayList(both), first.getEmployeeIds());
+
+        ScheduleDTO second = scheduleController.autoSchedule(createAutoScheduleRequest(petIds.get(1), monday, EmployeeSkill.FEEDING, EmployeeSkill.WALKING));
+        Assertions.assertEquals(Lists.newArrayList(feeder, walker), second.getEmployeeIds());
+
+        Assertions.assertThrows(ScheduleConflictException.class, () -> scheduleController.autoSchedule(
+                createAutoScheduleRequest(petIds.get(0), monday.plusWeeks(1), EmployeeSkill.SHAVING)));
+
+        saveEmployee(Sets.newHashSet(EmployeeSkill.SHAVING), DayOfWeek.MONDAY);
+        ScheduleConflictException petBooked = Assertions.assertThrows(ScheduleConflictException.class, () -> scheduleController.autoSchedule(
+                createAutoScheduleRequest(petIds.get(0), monday, EmployeeSkill.SHAVING)));
+        Assertions.assertTrue(petBooked.isPetConflict());
+    }
+
+    @Test
+    public void testRecurringScheduleExpandsWithOverrides() {
+        LocalDate monday = LocalDate.of(2024, 9, 2);
+        ScheduleDTO weekly = createScheduleDTO(null, null, monday, Sets.newHashSet(EmployeeSkill.WALKING));
+        weekly.setRecurrence(RecurrenceFrequency.WEEKLY);
+        weekly.setRecurrenceEnd(monday.plusWeeks(7));
+        ScheduleDTO series = populateSchedule(1, 1, weekly);
+        Long employeeId = series.getEmployeeIds().get(0);
+        Long petId = series.getPetIds().get(0);
+
+        Assertions.assertEquals(1, scheduleController.getAllSchedules().size());
+        List<ScheduleDTO> all = scheduleController.getScheduleForPet(petId);
+        Assertions.assertEquals(8, all.size());
+        Assertions.assertTrue(all.stream().allMatch(occurrence -> occurrence.getId() == series.getId()));
+        Assertions.assertEquals(monday.plusWeeks(7), all.get(7).getDate());
+
+        List<ScheduleDTO> window = scheduleController.getScheduleForEmployee(employeeId, monday.plusWeeks(2), monday.plusWeeks(4), null).getBody();
+        Assertions.assertEquals(Lists.newArrayList(monday.plusWeeks(2), monday.plusWeeks(3), monday.plusWeeks(4)),
+                window.stream().map(ScheduleDTO::getDate).collect(Collectors.toList()));
+
+        Assertions.assertThrows(ScheduleConflictException.class, () -> scheduleController.createSchedule(
+                createScheduleDTO(Lists.newArrayList(petId), Collections.emptyList(), monday.plusWeeks(3), Sets.newHashSet(EmployeeSkill.FEEDING))));
+
+        ScheduleOverrideDTO cancel = new ScheduleOverrideDTO();
+        cancel.setOriginalDate(monday.plusWeeks(3));
+        cancel.setCancelled(true);
+        scheduleController.overrideOccurrence(series.getId(), cancel);
+        ScheduleOverrideDTO move = new ScheduleOverrideDTO();
+        move.setOriginalDate(monday.plusWeeks(4));
+        move.setDate(monday.plusWeeks(4).plusDays(1));
+        Assertions.assertThrows(ScheduleConflictException.class, () -> scheduleController.overrideOccurrence(series.getId(), move));
+        move.setDate(monday.plusWeeks(5));
+        Assertions.assertThrows(ScheduleConflictException.class, () -> scheduleController.overrideOccurrence(series.getId(), move));
+        move.setDate(monday.plusWeeks(3));
+        scheduleController.overrideOccurrence(series.getId(), move);
+
+        window = scheduleController.getScheduleForCustomer(userController.getOwnerByPet(petId).getId(), monday.plusWeeks(2), monday.plusWeeks(4));
+        Assertions.assertEquals(Lists.newArrayList(monday.plusWeeks(2), monday.plusWeeks(3)),
+                window.stream().map(ScheduleDTO::getDate).collect(Collectors.toList()));
+        Assertions.assertEquals(7, scheduleController.getScheduleForPet(petId).size());
+        scheduleController.createSchedule(createScheduleDTO(Lists.newArrayList(petId), Collections.emptyList(), monday.plusWeeks(4), Sets.newHashSet(EmployeeSkill.FEEDING)));
+
+        // restoring a cancelled occurrence is a move back onto its original date, checked like any other
+        cancel.setOriginalDate(monday.plusWeeks(6));
+        scheduleController.overrideOccurrence(series.getId(), cancel);
+        scheduleController.createSchedule(createScheduleDTO(Lists.newArrayList(petId), Collections.emptyList(), monday.plusWeeks(6), Sets.newHashSet(EmployeeSkill.FEEDING)));
+        ScheduleOverrideDTO restore = new ScheduleOverrideDTO();
+        restore.setOriginalDate(monday.plusWeeks(6));
+        restore.setDate(monday.plusWeeks(6));
+        Assertions.assertThrows(ScheduleConflictException.class, () -> scheduleController.overrideOccurrence(series.getId(), restore));
+        Assertions.assertEquals(1, scheduleController.getScheduleForPet(petId).stream()
+                .filter(occurrence -> occurrence.getDate().equals(monday.plusWeeks(6))).count());
+    }
+
+    @Test
+    public void testUtilizationRollupsFollowBookings() throws Exception {
+        LocalDate monday = LocalDate.of(2025, 3, 3);
+        ScheduleDTO oneOff = populateSchedule(1, 1, monday, Sets.newHashSet(EmployeeSkill.WALKING, EmployeeSkill.FEEDING));
+        ScheduleDTO weekly = createScheduleDTO(null, null, monday, Sets.newHashSet(EmployeeSkill.PETTING));
+        weekly.setRecurrence(RecurrenceFrequency.WEEKLY);
+        weekly.setRecurrenceEnd(monday.plusWeeks(3));
+        ScheduleDTO series = populateSchedule(1, 1, weekly);
+        ScheduleOverrideDTO cancel = new ScheduleOverrideDTO();
+        cancel.setOriginalDate(monday.plusWeeks(1));
+        cancel.setCancelled(true);
+        scheduleController.overrideOccurrence(series.getId(), cancel);
+
+        // March 2025 has five Mondays
+        mockMvc.perform(get("/utilization/employee/" + oneOff.getEmployeeIds().get(0)).param("from", "2025-03-01").param("to", "2025-03-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.workingDays").value(5))
+                .andExpect(jsonPath("$.bookedDays").value(1))
+                .andExpect(jsonPath("$.bookingsByActivity.WALKING").value(1))
+                .andExpect(jsonPath("$.bookingsByActivity.FEEDING").value(1));
+        mockMvc.perform(get("/utilization/employee/" + series.getEmployeeIds().get(0)).param("from", "2025-03-01").param("to", "2025-03-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.bookedDays").value(3))
+                .andExpect(jsonPath("$.utilization").value(0.6))
+                .andExpect(jsonPath("$.bookingsByActivity.PETTING").value(3));
+
+        mockMvc.perform(get("/utilization/daily").param("from", "2025-03-03").param("to", "2025-03-10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(8))
+                .andExpect(jsonPath("$[0].availableEmployees").value(2))
+                .andExpect(jsonPath("$[0].bookedEmployees").value(2))
+                .andExpect(jsonPath("$[0].bookingsByActivity.PETTING").value(1))
+                .andExpect(jsonPath("$[1].availableEmployees").value(0))
+                .andExpect(jsonPath("$[7].bookedEmployees").value(0));
+        mockMvc.perform(get("/utilization/daily").param("from", "2025-03-17").param("to", "2025-03-17").param("activity", "WALKING"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].availableEmployees").value(1))
+                .andExpect(jsonPath("$[0].bookedEmployees").value(0));
+        mockMvc.perform(get("/utilization/daily").param("from", "2025-03-17").param("to", "2025-03-03"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testConditionalGetAnswersNotModifiedUntilDataChanges() throws Exception {
+        LocalDate monday = LocalDate.of(2024, 11, 4);
+        ScheduleDTO weekly = createScheduleDTO(null, null, monday, Sets.newHashSet(EmployeeSkill.WALKING));
+        weekly.setRecurrence(RecurrenceFrequency.WEEKLY);
+        weekly.setRecurrenceEnd(monday.plusWeeks(3));
+        ScheduleDTO series = populateSchedule(1, 1, weekly);
+        long employeeId = series.getEmployeeIds().get(0);
+        PetDTO pet = petController.getPet(series.getPetIds().get(0));
+
+        String petTag = assertNotModifiedUntil("/pet/" + pet.getId(), () -> {
+            pet.setName("renamed");
+            petController.savePet(pet);
+        });
+        Assertions.assertNotNull(petTag);
+        assertNotModifiedUntil("/pet/owner/" + pet.getOwnerId(), () -> {
+            PetDTO another = createPetDTO();
+            another.setOwnerId(pet.getOwnerId());
+            petController.savePet(another);
+        });
+        String schedules = "/schedule/employee/" + employeeId + "?from=" + monday + "&to=" + monday.plusWeeks(3);
+        assertNotModifiedUntil(schedules, () -> {
+            ScheduleOverrideDTO cancel = new ScheduleOverrideDTO();
+            cancel.setOriginalDate(monday.plusWeeks(1));
+            cancel.setCancelled(true);
+            scheduleController.overrideOccurrence(series.getId(), cancel);
+        });
+        assertNotModifiedUntil(schedules, () -> scheduleController.createSchedule(createScheduleDTO(
+                Collections.emptyList(), Lists.newArrayList(employeeId), monday.plusWeeks(1), Sets.newHashSet(EmployeeSkill.WALKING))));
+
+        mockMvc.perform(get("/user/employee/availability").param("skills", "WALKING").param("date", monday.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(employeeId));
+        mockMvc.perform(get("/user/employee/availability").param("skills", "WALKING"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testNegotiatesBinaryFormats() throws Exception {
+        populateSchedule(2, 3, LocalDate.of(2024, 12, 2), Sets.newHashSet(EmployeeSkill.PETTING, EmployeeSkill.SHAVING));
+        ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+        ObjectMapper smile = new ObjectMapper(new SmileFactory());
+
+        for (String url : Lists.newArrayList("/schedule", "/pet", "/user/customer")) {
+            MockHttpServletResponse json = mockMvc.perform(get(url)).andExpect(status().isOk()).andReturn().getResponse();
+            Assertions.assertEquals(MediaType.APPLICATION_JSON_VALUE, json.getContentType());
+            byte[] cborBody = mockMvc.perform(get(url).accept(MediaType.APPLICATION_CBOR)).andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsByteArray();
+            byte[] smileBody = mockMvc.perform(get(url).accept(new MediaType("application", "x-jackson-smile"))).andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsByteArray();
+            Assertions.assertEquals(objectMapper.readTree(json.getContentAsString()), cbor.readTree(cborBody), url);
+            Assertions.assertEquals(objectMapper.readTree(json.getContentAsString()), smile.readTree(smileBody), url);
+            Assertions.assertTrue(cborBody.length < json.getContentAsByteArray().length, url);
+        }
+
+        CustomerDTO customer = createCustomerDTO();
+        byte[] saved = mockMvc.perform(post("/user/customer").contentType(MediaType.APPLICATION_CBOR)
+                .accept(MediaType.APPLICATION_CBOR).content(cbor.writeValueAsBytes(customer)))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsByteArray();
+        Assertions.assertEquals(customer.getName(), cbor.readValue(saved, CustomerDTO.class).getName());
+    }
+
+    @Test
+    public void testSkillsDaysAndActivitiesAreStoredAsMasks() {
+        ScheduleDTO schedule = populateSchedule(1, 1, LocalDate.of(2024, 12, 4), Sets.newHashSet(EmployeeSkill.PETTING, EmployeeSkill.SHAVING));
+        entityManager.flush();
+
+        Object[] employee = (Object[]) entityManager.createNativeQuery("SELECT skills, days_available FROM employee WHERE id = ?1")
+                .setParameter(1, schedule.getEmployeeIds().get(0)).getSingleResult();
+        Assertions.assertEquals(1 << EmployeeSkill.PETTING.ordinal() | 1 << EmployeeSkill.SHAVING.ordinal(), ((Number) employee[0]).intValue());
+        Assertions.assertEquals(1 << DayOfWeek.WEDNESDAY.ordinal(), ((Number) employee[1]).intValue());
+        Object activities = entityManager.createNativeQuery("SELECT activities FROM schedule WHERE id = ?1")
+                .setParameter(1, schedule.getId()).getSingleResult();
+        Assertions.assertEquals(1 << EmployeeSkill.PETTING.ordinal() | 1 << EmployeeSkill.SHAVING.ordinal(), ((Number) activities).intValue());
+
+        entityManager.clear();
+        Assertions.assertEquals(EnumSet.of(EmployeeSkill.PETTING, EmployeeSkill.SHAVING),
+                scheduleController.getScheduleForPet(schedule.getPetIds().get(0)).get(0).getActivities());
+        EmployeeRequestDTO request = new EmployeeRequestDTO();
+        request.setDate(LocalDate.of(2024, 12, 11));
+        request.setSkills(Sets.newHashSet(EmployeeSkill.SHAVING));
+        Assertions.assertEquals(schedule.getEmployeeIds(), userController.findEmployeesForService(request).stream()
+                .map(EmployeeDTO::getId).collect(Collectors.toList()));
+        request.setSkills(Sets.newHashSet(EmployeeSkill.SHAVING, EmployeeSkill.WALKING));
+        Assertions.assertTrue(userController.findEmployeesForService(request).isEmpty());
+    }
+
+    @Test
+    public void testIdempotencyKeyReplaysTheFirstBooking() throws Exception {
+        ScheduleDTO existing = populateSchedule(1, 1, LocalDate.of(2024, 12, 9), Sets.newHashSet(EmployeeSkill.WALKING));
+        ScheduleDTO retried = createScheduleDTO(existing.getPetIds(), existing.getEmployeeIds(), LocalDate.of(2024, 12, 16), existing.getActivities());
+        String body = objectMapper.writeValueAsString(retried);
+
+        String first = mockMvc.perform(post("/schedule").header("Idempotency-Key", "retry-1")
+                .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        // would be a double booking if it ran again
+        String second = mockMvc.perform(post("/schedule").header("Idempotency-Key", "retry-1")
+                .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        Assertions.assertEquals(objectMapper.readTree(first), objectMapper.readTree(second));
+        Assertions.assertEquals(2, scheduleController.getScheduleForPet(existing.getPetIds().get(0)).size());
+
+        retried.setDate(LocalDate.of(2024, 12, 23));
+        mockMvc.perform(post("/schedule").header("Idempotency-Key", "retry-1")
+                .contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(retried)))
+                .andExpect(status().isUnprocessableEntity());
+        mockMvc.perform(post("/schedule").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    public void testExportAsNdjson() throws Exception {
+        ScheduleDTO schedule = populateSchedule(1, 2, LocalDate.of(2024, 2, 5), Sets.newHashSet(EmployeeSkill.FEEDING));
+        CustomerDTO petless = userController.saveCustomer(createCustomerDTO());
+
+        List<PetDTO> pets = readNdjson(exportController.exportPets().getBody(), PetDTO.class);
+        Assertions.assertEquals(schedule.getPetIds(), pets.stream().map(PetDTO::getId).collect(Collectors.toList()));
+        Assertions.assertEquals(userController.getOwnerByPet(pets.get(0).getId()).getId(), pets.get(0).getOwnerId());
+
+        List<CustomerDTO> customers = readNdjson(exportController.exportCustomers().getBody(), CustomerDTO.class);
+        Assertions.assertEquals(2, customers.size());
+        Assertions.assertEquals(schedule.getPetIds(), customers.get(0).getPetIds());
+        Assertions.assertTrue(customers.get(1).getPetIds().isEmpty());
+
+        List<ScheduleDTO> schedules = readNdjson(exportController.exportSchedules().getBody(), ScheduleDTO.class);
+        Assertions.assertEquals(1, schedules.size());
+        compareSchedules(schedule, schedules.get(0));
+    }
+
+    @Test
+    public void testImportNdjsonSkipsBadRows() throws Exception {
+        ImportReport customers = importController.importCustomers(ndjson(
+                "{\"name\":\"Ann\",\"phoneNumber\":\"555-0101\"}",
+                "",
+                "{\"name\":\"No Phone\"}",
+                "{not json",
+                "{\"id\":999,\"name\":\"Bo\",\"phoneNumber\":\"555-0102\",\"notes\":\"imported\"}"));
+        Assertions.assertEquals(4, customers.getRows());
+        Assertions.assertEquals(2, customers.getImported());
+        Assertions.assertEquals(2, customers.getFailed());
+        Assertions.assertEquals(Lists.newArrayList(3L, 4L), customers.getErrors().stream().map(e -> e.getLine()).collect(Collectors.toList()));
+
+        List<CustomerDTO> saved = userController.getAllCustomers();
+        Assertions.assertEquals(Lists.newArrayList("Ann", "Bo"), saved.stream().map(CustomerDTO::getName).collect(Collectors.toList()));
+        Assertions.assertNotEquals(999L, saved.get(1).getId());
+        long ownerId = saved.get(1).getId();
+
+        ImportReport pets = importController.importPets(ndjson(
+                "{\"name\":\"Rex\",\"type\":\"DOG\",\"ownerId\":" + ownerId + ",\"birthDate\":\"2019-04-01\"}",
+                "{\"name\":\"Stray\",\"type\":\"CAT\",\"ownerId\":" + (ownerId + 1000) + "}"));
+        Assertions.assertEquals(1, pets.getImported());
+        Assertions.assertEquals(2L, pets.getErrors().get(0).getLine());
+        List<PetDTO> owned = petController.getPetsByOwner(ownerId);
+        Assertions.assertEquals(1, owned.size());
+        Assertions.assertEquals(LocalDate.of(2019, 4, 1), owned.get(0).getBirthDate());
+        Assertions.assertEquals(Lists.newArrayList(owned.get(0).getId()), userController.getAllCustomers().get(1).getPetIds());
+
+        ImportReport employees = importController.importEmployees(ndjson(
+                "{\"name\":\"Walker\",\"skills\":[\"WALKING\"],\"daysAvailable\":[\"MONDAY\"]}"));
+        Assertions.assertEquals(1, employees.getImported());
+        EmployeeRequestDTO request = new EmployeeRequestDTO();
+        request.setDate(LocalDate.of(2024, 2, 5));
+        request.setSkills(Sets.newHashSet(EmployeeSkill.WALKING));
+        Assertions.assertEquals(1, userController.findEmployeesForService(request).size());
+    }
+
+    @Test
+    public void testImportResolvesOwnersFromTheCustomersExport() throws Exception {
+        CustomerDTO ann = createCustomerDTO();
+        ann.setName("Ann");
+        long annId = userController.saveCustomer(ann).getId();
+        CustomerDTO bo = createCustomerDTO();
+        bo.setName("Bo");
+        long boId = userController.saveCustomer(bo).getId();
+        for (String name : Arrays.asList("Rex", "Tom", "Fido")) {
+            PetDTO pet = createPetDTO();
+            pet.setName(name);
+            pet.setOwnerId("Rex".equals(name) ? annId : boId);
+            petController.savePet(pet);
+        }
+        ByteArrayOutputStream customers = new ByteArrayOutputStream();
+        exportController.exportCustomers().getBody().writeTo(customers);
+        ByteArrayOutputStream pets = new ByteArrayOutputStream();
+        exportController.exportPets().getBody().writeTo(pets);
+        entityManager.createQuery("DELETE FROM Pet").executeUpdate();
+        entityManager.createQuery("DELETE FROM Customer").executeUpdate();
+        entityManager.clear();
+
+        Assertions.assertEquals(2, importController.importCustomers(new ByteArrayInputStream(customers.toByteArray())).getImported());
+        Assertions.assertEquals(3, importController.importPets(new ByteArrayInputStream(pets.toByteArray())).getImported());
+
+        List<CustomerDTO> imported = userController.getAllCustomers();
+        Assertions.assertEquals(Lists.newArrayList("Ann", "Bo"), imported.stream().map(CustomerDTO::getName).collect(Collectors.toList()));
+        Assertions.assertNotEquals(annId, imported.get(0).getId());
+        Assertions.assertEquals(Lists.newArrayList("Rex"), petController.getPetsByOwner(imported.get(0).getId()).stream()
+                .map(PetDTO::getName).collect(Collectors.toList()));
+        Assertions.assertEquals(Lists.newArrayList("Tom", "Fido"), petController.getPetsByOwner(imported.get(1).getId()).stream()
+                .map(PetDTO::getName).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testRequestStatsChargeStatementsToRepositoryCalls() {
+        RequestStats stats = new RequestStats();
+        RequestStats.bind(stats);
+        try {
+            userController.saveCustomer(createCustomerDTO());
+            userController.getAllCustomers();
+        } finally {
+            RequestStats.unbind();
+        }
+        RequestStats.RepositoryCalls listing = stats.getRepositoryCalls().get("CustomerRepository.findAllAsDTO");
+        Assertions.assertEquals(1, listing.getCalls());
+        Assertions.assertTrue(listing.getStatements() >= 1);
+        Assertions.assertTrue(stats.getRepositoryCalls().containsKey("CustomerRepository.save"));
+        Assertions.assertTrue(stats.getStatements() >= listing.getStatements());
+
+        long before = stats.getStatements();
+        userController.getAllCustomers();
+        Assertions.assertEquals(before, stats.getStatements());
+    }
+
+    /**
+     * Runs every endpoint against a small and a larger data set and expects the same number of
+     * queries of each type, so per-row lookups fail here before they reach production.
+     */
+    @Test
+    public void testQueryCountsDoNotGrowWithData() {
+        Map<String, SqlStatementCounter.Counts> small = measureEndpoints(seedWorld(2, LocalDate.of(2025, 1, 6)));
+        Map<String, SqlStatementCounter.Counts> large = measureEndpoints(seedWorld(12, LocalDate.of(2026, 1, 5)));
+        Assertions.assertAll(small.entrySet().stream().map(endpoint -> () ->
+                Assertions.assertEquals(endpoint.getValue().queries(), large.get(endpoint.getKey()).queries(), endpoint.getKey())));
+    }
+
+    @Test
+    public void testScheduleListingReadsIdsByProjection() {
+        LocalDate monday = LocalDate.of(2025, 6, 2);
+        for (int i = 0; i < 3; i++) {
+            populateSchedule(2, 2, monday.plusDays(i), Sets.newHashSet(EmployeeSkill.FEEDING, EmployeeSkill.WALKING));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        entityManagerFactory.getCache().evictAll();
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+
+        SqlStatementCounter.Counts counts = SqlStatementCounter.count(() -> {
+            List<ScheduleDTO> schedules = scheduleController.getSchedules(null, null).getItems();
+            Assertions.assertEquals(3, schedules.size());
+            schedules.forEach(schedule -> {
+                Assertions.assertEquals(2, schedule.getPetIds().size());
+                Assertions.assertEquals(2, schedule.getEmployeeIds().size());
+                Assertions.assertEquals(2, schedule.getActivities().size());
+            });
+        });
+        // the page of schedules, then one pet id and one employee id projection for all of them;
+        // activities come with the schedule row
+        Assertions.assertEquals(3, counts.get(SqlStatementCounter.Type.SELECT));
+        Assertions.assertEquals(3, counts.total());
+    }
+
     @Test
     public void testFindScheduleByEntities() {
         ScheduleDTO s1 = populateSchedule(1, 2, LocalDate.of(2022, 12, 25), Sets.newHashSet(EmployeeSkill.FEEDING, EmployeeSkill.WALKING));
@@ -190,13 +756,24 @@ public class CritterFunctionalTest {
         s3.setEmployeeIds(s1.getEmployeeIds());
         s3.setPetIds(s2.getPetIds());
         s3.setActivities(Sets.newHashSet(EmployeeSkill.SHAVING, EmployeeSkill.PETTING));
-        s3.setDate(LocalDate.of(2023, 3, 23));
+        s3.setDate(LocalDate.of(2023, 3, 26));
         scheduleController.createSchedule(s3);
-        List<ScheduleDTO> o1 = scheduleController.getScheduleForEmployee(s1.getEmployeeIds().get(0));
+        List<ScheduleDTO> o1 = scheduleController.getScheduleForEmployee(s1.getEmployeeIds().get(0), null, null, null).getBody();
         compareSchedules(s1, o1.get(0));
         compareSchedules(s3, o1.get(1));
 
-        List<ScheduleDTO> o2 = scheduleController.getScheduleForEmployee(s2.getEmployeeIds().get(0));
+        List<ScheduleDTO> o1Range = scheduleController.getScheduleForEmployee(s1.getEmployeeIds().get(0), LocalDate.of(2023, 1, 1), LocalDate.of(2023, 12, 31), null).getBody();
+        Assertions.assertEquals(1, o1Range.size());
+        compareSchedules(s3, o1Range.get(0));
+
+        ResponseEntity<List<ScheduleDTO>> o1Limited = scheduleController.getScheduleForEmployee(s1.getEmployeeIds().get(0), null, null, 1);
+        Assertions.assertEquals(1, o1Limited.getBody().size());
+        compareSchedules(s1, o1Limited.getBody().get(0));
+        Assertions.assertEquals("true", o1Limited.getHeaders().getFirst(ScheduleController.TRUNCATED_HEADER));
+        Assertions.assertFalse(scheduleController.getScheduleForEmployee(s1.getEmployeeIds().get(0), null, null, 2)
+                .getHeaders().containsKey(ScheduleController.TRUNCATED_HEADER));
+
+        List<ScheduleDTO> o2 = scheduleController.getScheduleForEmployee(s2.getEmployeeIds().get(0), null, null, null).getBody();
         compareSchedules(s2, o2.get(0));
 
         List<ScheduleDTO> p1 = scheduleController.getScheduleForPet(s1.getPetIds().get(0));
@@ -206,12 +783,17 @@ public class CritterFunctionalTest {
         compareSchedules(s2, p2.get(0));
         compareSchedules(s3, p2.get(1));
 
-        List<ScheduleDTO> c1 = scheduleController.getScheduleForCustomer(userController.getOwnerByPet(s1.getPetIds().get(0)).getId());
+        List<ScheduleDTO> c1 = scheduleController.getScheduleForCustomer(userController.getOwnerByPet(s1.getPetIds().get(0)).getId(), null, null);
         compareSchedules(s1, c1.get(0));
 
-        List<ScheduleDTO> c2 = scheduleController.getScheduleForCustomer(userController.getOwnerByPet(s2.getPetIds().get(0)).getId());
+        List<ScheduleDTO> c2 = scheduleController.getScheduleForCustomer(userController.getOwnerByPet(s2.getPetIds().get(0)).getId(), null, null);
+        Assertions.assertEquals(2, c2.size());
         compareSchedules(s2, c2.get(0));
         compareSchedules(s3, c2.get(1));
+
+        List<ScheduleDTO> c3 = scheduleController.getScheduleForCustomer(userController.getOwnerByPet(s2.getPetIds().get(0)).getId(), LocalDate.of(2023, 1, 1), null);
+        Assertions.assertEquals(1, c3.size());
+        compareSchedules(s3, c3.get(0));
     }
 
 
@@ -242,6 +824,21 @@ public class CritterFunctionalTest {
         return employeeRequestDTO;
     }
 
+    private long saveEmployee(Set<EmployeeSkill> skills, DayOfWeek day) {
+        EmployeeDTO employee = createEmployeeDTO();
+        employee.setSkills(skills);
+        employee.setDaysAvailable(Sets.newHashSet(day));
+        return userController.saveEmployee(employee).getId();
+    }
+
+    private static AutoScheduleRequestDTO createAutoScheduleRequest(long petId, LocalDate date, EmployeeSkill... activities) {
+        AutoScheduleRequestDTO request = new AutoScheduleRequestDTO();
+        request.setPetIds(Lists.newArrayList(petId));
+        request.setDate(date);
+        request.setActivities(Sets.newHashSet(activities));
+        return request;
+    }
+
     private static ScheduleDTO createScheduleDTO(List<Long> petIds, List<Long> employeeIds, LocalDate date, Set<EmployeeSkill> activities) {
         ScheduleDTO scheduleDTO = new ScheduleDTO();
         scheduleDTO.setPetIds(petIds);
@@ -252,11 +849,15 @@ public class CritterFunctionalTest {
     }
 
     private ScheduleDTO populateSchedule(int numEmployees, int numPets, LocalDate date, Set<EmployeeSkill> activities) {
+        return populateSchedule(numEmployees, numPets, createScheduleDTO(null, null, date, activities));
+    }
+
+    private ScheduleDTO populateSchedule(int numEmployees, int numPets, ScheduleDTO schedule) {
         List<Long> employeeIds = IntStream.range(0, numEmployees)
                 .mapToObj(i -> createEmployeeDTO())
                 .map(e -> {
-                    e.setSkills(activities);
-                    e.setDaysAvailable(Sets.newHashSet(date.getDayOfWeek()));
+                    e.setSkills(schedule.getActivities());
+                    e.setDaysAvailable(Sets.newHashSet(schedule.getDate().getDayOfWeek()));
                     return userController.saveEmployee(e).getId();
                 }).collect(Collectors.toList());
         CustomerDTO cust = userController.saveCustomer(createCustomerDTO());
@@ -266,7 +867,170 @@ public class CritterFunctionalTest {
                     p.setOwnerId(cust.getId());
                     return petController.savePet(p).getId();
                 }).collect(Collectors.toList());
-        return scheduleController.createSchedule(createScheduleDTO(petIds, employeeIds, date, activities));
+        schedule.setPetIds(petIds);
+        schedule.setEmployeeIds(employeeIds);
+        return scheduleController.createSchedule(schedule);
+    }
+
+    /**
+     * Polls {@code url} with the tag of the first response, expecting 304 until {@code change}
+     * runs and then a full response with a new tag, which is returned.
+     */
+    private String assertNotModifiedUntil(String url, Runnable change) throws Exception {
+        String eTag = mockMvc.perform(get(url)).andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        Assertions.assertNotNull(eTag, url);
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        change.run();
+        String changed = mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, eTag)).andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        Assertions.assertNotEquals(eTag, changed, url);
+        return changed;
+    }
+
+    /**
+     * One customer with {@code size} pets, {@code size} employees who each have a one-off
+     * schedule in the first two weeks, and a weekly series for everyone from week four.
+     */
+    private World seedWorld(int size, LocalDate monday) {
+        World world = new World(monday);
+        world.customerId = userController.saveCustomer(createCustomerDTO()).getId();
+        for (int i = 0; i < size; i++) {
+            PetDTO pet = createPetDTO();
+            pet.setOwnerId(world.customerId);
+            world.petIds.add(petController.savePet(pet).getId());
+            EmployeeDTO employee = createEmployeeDTO();
+            employee.setSkills(EnumSet.allOf(EmployeeSkill.class));
+            employee.setDaysAvailable(EnumSet.allOf(DayOfWeek.class));
+            world.employeeIds.add(userController.saveEmployee(employee).getId());
+        }
+        for (int i = 0; i < size; i++) {
+            scheduleController.createSchedule(createScheduleDTO(Lists.newArrayList(world.petIds.get(i)),
+                    Lists.newArrayList(world.employeeIds.get(i)), monday.plusDays(i), Sets.newHashSet(EmployeeSkill.FEEDING)));
+        }
+        ScheduleDTO series = createScheduleDTO(world.petIds, world.employeeIds, monday.plusWeeks(4), Sets.newHashSet(EmployeeSkill.WALKING));
+        series.setRecurrence(RecurrenceFrequency.WEEKLY);
+        series.setRecurrenceEnd(monday.plusWeeks(4 + size));
+        world.seriesId = scheduleController.createSchedule(series).getId();
+        return world;
+    }
+
+    private Map<String, SqlStatementCounter.Counts> measureEndpoints(World world) {
+        Map<String, SqlStatementCounter.Counts> counts = new LinkedHashMap<>();
+        long petId = world.petIds.get(0);
+        long employeeId = world.employeeIds.get(0);
+        EmployeeRequestDTO request = new EmployeeRequestDTO();
+        request.setDate(world.monday);
+        request.setSkills(Sets.newHashSet(EmployeeSkill.FEEDING));
+
+        measure(counts, "GET /user/customer", () -> userController.getCustomers(null, null));
+        measure(counts, "GET /user/customer?unpaged", () -> userController.getAllCustomers());
+        measure(counts, "GET /user/customer/pet/{petId}", () -> userController.getOwnerByPet(petId));
+        measure(counts, "POST /user/employee/{employeeId} (get employee)", () -> userController.getEmployee(employeeId));
+        measure(counts, "GET /user/employee/availability", () -> userController.findEmployeesForService(request));
+        measure(counts, "GET /pet", () -> petController.getPets(null, null));
+        measure(counts, "GET /pet?unpaged", () -> petController.getPets());
+        measure(counts, "GET /pet/{petId}", () -> petController.getPet(petId));
+        measure(counts, "GET /pet/owner/{ownerId}", () -> petController.getPetsByOwner(world.customerId));
+        measure(counts, "GET /schedule", () -> scheduleController.getSchedules(null, null));
+        measure(counts, "GET /schedule?unpaged", () -> scheduleController.getAllSchedules());
+        measure(counts, "GET /schedule/pet/{petId}", () -> scheduleController.getScheduleForPet(petId));
+        measure(counts, "GET /schedule/employee/{employeeId}", () -> scheduleController.getScheduleForEmployee(employeeId, null, null, null).getBody());
+        measure(counts, "GET /schedule/customer/{customerId}", () -> scheduleController.getScheduleForCustomer(world.customerId, null, null));
+
+        PetDTO pet = createPetDTO();
+        pet.setOwnerId(world.customerId);
+        measure(counts, "POST /pet", () -> petController.savePet(pet));
+        measure(counts, "POST /user/customer", () -> userController.saveCustomer(createCustomerDTO()));
+        measure(counts, "POST /user/employee", () -> userController.saveEmployee(createEmployeeDTO()));
+        measure(counts, "PUT /user/employee/{employeeId}", () -> userController.setAvailability(EnumSet.allOf(DayOfWeek.class), employeeId));
+        measure(counts, "POST /schedule", () -> scheduleController.createSchedule(createScheduleDTO(world.petIds, world.employeeIds,
+                world.monday.plusWeeks(2), Sets.newHashSet(EmployeeSkill.FEEDING))));
+        List<ScheduleDTO> batch = IntStream.range(0, world.petIds.size())
+                .mapToObj(i -> createScheduleDTO(Lists.newArrayList(world.petIds.get(i)), Lists.newArrayList(world.employeeIds.get(i)),
+                        world.monday.plusWeeks(3), Sets.newHashSet(EmployeeSkill.FEEDING)))
+                .collect(Collectors.toList());
+        measure(counts, "POST /schedule/batch", () -> scheduleController.createSchedules(batch));
+        AutoScheduleRequestDTO auto = createAutoScheduleRequest(petId, world.monday.plusWeeks(2).plusDays(1), EmployeeSkill.WALKING);
+        auto.setPetIds(world.petIds);
+        measure(counts, "POST /schedule/auto", () -> scheduleController.autoSchedule(auto));
+        ScheduleOverrideDTO cancel = new ScheduleOverrideDTO();
+        cancel.setOriginalDate(world.monday.plusWeeks(5));
+        cancel.setCancelled(true);
+        measure(counts, "PUT /schedule/{scheduleId}/overrides", () -> scheduleController.overrideOccurrence(world.seriesId, cancel));
+
+        measure(counts, "GET /export/pets", unchecked(() -> exportController.exportPets().getBody().writeTo(new ByteArrayOutputStream())));
+        measure(counts, "GET /export/customers", unchecked(() -> exportController.exportCustomers().getBody().writeTo(new ByteArrayOutputStream())));
+        measure(counts, "GET /export/schedules", unchecked(() -> exportController.exportSchedules().getBody().writeTo(new ByteArrayOutputStream())));
+        // uploaded ids far above the seeded ones, so one pet finds its owner among the imported
+        // customers and the other in the database in both worlds
+        measure(counts, "POST /import/customers", unchecked(() -> importController.importCustomers(ndjson(
+                "{\"id\":900001,\"name\":\"Ann\",\"phoneNumber\":\"555-0101\"}",
+                "{\"id\":900002,\"name\":\"Bo\",\"phoneNumber\":\"555-0102\"}"))));
+        measure(counts, "POST /import/pets", unchecked(() -> importController.importPets(ndjson(
+                "{\"name\":\"Rex\",\"type\":\"DOG\",\"ownerId\":900001}",
+                "{\"name\":\"Tom\",\"type\":\"CAT\",\"ownerId\":" + world.customerId + "}"))));
+        measure(counts, "POST /import/employees", unchecked(() -> importController.importEmployees(ndjson(
+                "{\"name\":\"Walker\",\"skills\":[\"WALKING\"],\"daysAvailable\":[\"MONDAY\"]}"))));
+        measure(counts, "GET /cache/stats", () -> cacheStatsController.getStats());
+        return counts;
+    }
+
+    /**
+     * Starts every call from an empty persistence context and cold second-level and query
+     * caches, and flushes inside the count so deferred inserts are included.
+     */
+    private void measure(Map<String, SqlStatementCounter.Counts> counts, String endpoint, Runnable call) {
+        entityManager.flush();
+        entityManager.clear();
+        entityManagerFactory.getCache().evictAll();
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+        counts.put(endpoint, SqlStatementCounter.count(() -> {
+            call.run();
+            entityManager.flush();
+        }));
+    }
+
+    private static Runnable unchecked(IoCall call) {
+        return () -> {
+            try {
+                call.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    private interface IoCall {
+        void run() throws IOException;
+    }
+
+    private static class World {
+        private final LocalDate monday;
+        private final List<Long> petIds = new ArrayList<>();
+        private final List<Long> employeeIds = new ArrayList<>();
+        private long customerId;
+        private long seriesId;
+
+        private World(LocalDate monday) {
+            this.monday = monday;
+        }
+    }
+
+    private static ByteArrayInputStream ndjson(String... lines) throws IOException {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes("UTF-8"));
+    }
+
+    private <T> List<T> readNdjson(StreamingResponseBody body, Class<T> type) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out);
+        List<T> rows = new ArrayList<>();
+        for (String line : out.toString("UTF-8").split("\n")) {
+            rows.add(objectMapper.readValue(line, type));
+        }
+        return rows;
     }
 
     private static void compareSchedules(ScheduleDTO s1, ScheduleDTO s2) {
@@ -0,0 +1,70 @@
+package com.udacity.jdnd.course3.critter;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.udacity.jdnd.course3.critter.importer.ImportController;
+import com.udacity.jdnd.course3.critter.importer.ImportReport;
+import com.udacity.jdnd.course3.critter.pet.PetController;
+import com.udacity.jdnd.course3.critter.pet.PetDTO;
+import com.udacity.jdnd.course3.critter.user.CustomerDTO;
+import com.udacity.jdnd.course3.critter.user.UserController;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Imports chunks that fail in the database, which only works as in production when every chunk
+ * and every retried row gets its own transaction. Not transactional, so the context and its
+ * database are thrown away afterwards.
+ */
+@SpringBootTest(classes = CritterApplication.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+public class ImportChunkRetryTest {
+
+    @Autowired
+    private ImportController importController;
+
+    @Autowired
+    private UserController userController;
+
+    @Autowired
+    private PetController petController;
+
+    @Test
+    public void testRetriedCustomersStillResolveTheirPets() throws Exception {
+        // notes longer than the column pass validation and only fail when the chunk is flushed
+        ImportReport customers = importController.importCustomers(ndjson(
+                "{\"id\":501,\"name\":\"Ann\",\"phoneNumber\":\"555-0101\"}",
+                "{\"id\":502,\"name\":\"Long Notes\",\"phoneNumber\":\"555-0102\",\"notes\":\"" + Strings.repeat("x", 300) + "\"}",
+                "{\"id\":503,\"name\":\"Bo\",\"phoneNumber\":\"555-0103\"}"));
+        Assertions.assertEquals(2, customers.getImported());
+        Assertions.assertEquals(Lists.newArrayList(2L), customers.getErrors().stream().map(e -> e.getLine()).collect(Collectors.toList()));
+
+        ImportReport pets = importController.importPets(ndjson(
+                "{\"name\":\"Rex\",\"type\":\"DOG\",\"ownerId\":501}",
+                "{\"name\":\"Tom\",\"type\":\"CAT\",\"ownerId\":503}",
+                "{\"name\":\"Stray\",\"type\":\"CAT\",\"ownerId\":502}"));
+        Assertions.assertEquals(2, pets.getImported());
+        Assertions.assertEquals("Unknown owner 502", pets.getErrors().get(0).getMessage());
+
+        Map<String, Long> ids = userController.getAllCustomers().stream()
+                .collect(Collectors.toMap(CustomerDTO::getName, CustomerDTO::getId));
+        Assertions.assertEquals(Lists.newArrayList("Rex"), petController.getPetsByOwner(ids.get("Ann")).stream()
+                .map(PetDTO::getName).collect(Collectors.toList()));
+        Assertions.assertEquals(Lists.newArrayList("Tom"), petController.getPetsByOwner(ids.get("Bo")).stream()
+                .map(PetDTO::getName).collect(Collectors.toList()));
+    }
+
+    private static ByteArrayInputStream ndjson(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,122 @@
+package com.udacity.jdnd.course3.critter;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.udacity.jdnd.course3.critter.pet.PetDTO;
+import com.udacity.jdnd.course3.critter.pet.PetType;
+import com.udacity.jdnd.course3.critter.schedule.ScheduleDTO;
+import com.udacity.jdnd.course3.critter.service.PetService;
+import com.udacity.jdnd.course3.critter.service.ScheduleService;
+import com.udacity.jdnd.course3.critter.service.UserService;
+import com.udacity.jdnd.course3.critter.user.CustomerDTO;
+import com.udacity.jdnd.course3.critter.user.EmployeeDTO;
+import com.udacity.jdnd.course3.critter.user.EmployeeSkill;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs against two in-memory H2 databases, a primary and a replica that only changes when
+ * {@link #replicate()} copies the primary over, so a read shows which one it was served from.
+ */
+@SpringBootTest(classes = CritterApplication.class, properties = {
+        "spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1",
+        "critter.datasource.replica.url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1",
+        "critter.datasource.replica.username=sa",
+        "critter.datasource.replica.password=password"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+public class ReadReplicaRoutingTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private ScheduleService scheduleService;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private final DataSource primary = new DriverManagerDataSource("jdbc:h2:mem:primary", "sa", "password");
+    private final DataSource replica = new DriverManagerDataSource("jdbc:h2:mem:replica", "sa", "password");
+
+    @BeforeEach
+    public void replicateSchema() {
+        replicate();
+    }
+
+    @Test
+    public void testReadOnlyTransactionsReadTheReplica() throws Exception {
+        CustomerDTO customer = new CustomerDTO();
+        customer.setName("Primary Owner");
+        customer.setPhoneNumber("555-0100");
+        long ownerId = userService.saveCustomer(customer).getId();
+        PetDTO pet = new PetDTO();
+        pet.setName("Rex");
+        pet.setType(PetType.DOG);
+        pet.setOwnerId(ownerId);
+        long petId = petService.save(pet).getId();
+        EmployeeDTO employee = new EmployeeDTO();
+        employee.setName("Walker");
+        employee.setSkills(Sets.newHashSet(EmployeeSkill.WALKING));
+        employee.setDaysAvailable(EnumSet.allOf(DayOfWeek.class));
+        long employeeId = userService.saveEmployee(employee).getId();
+
+        Assertions.assertTrue(userService.getAllCustomer().isEmpty());
+        mockMvc.perform(get("/user/customer").param("unpaged", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+
+        // booking reads the pet and employee back inside its own transaction, on the primary
+        ScheduleDTO booking = new ScheduleDTO();
+        booking.setPetIds(Lists.newArrayList(petId));
+        booking.setEmployeeIds(Lists.newArrayList(employeeId));
+        booking.setDate(LocalDate.of(2024, 3, 4));
+        booking.setActivities(Sets.newHashSet(EmployeeSkill.WALKING));
+        scheduleService.createSchedule(booking);
+        Assertions.assertTrue(scheduleService.getScheduleForPet(petId).isEmpty());
+
+        replicate();
+        List<CustomerDTO> customers = userService.getAllCustomer();
+        Assertions.assertEquals(1, customers.size());
+        Assertions.assertEquals(ownerId, customers.get(0).getId());
+        Assertions.assertEquals(1, scheduleService.getScheduleForPet(petId).size());
+        mockMvc.perform(get("/user/customer").param("unpaged", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(ownerId));
+    }
+
+    /**
+     * Replaces the replica with a copy of the primary, schema and rows, the way replication
+     * would eventually catch up.
+     */
+    private void replicate() {
+        JdbcTemplate replicaJdbc = new JdbcTemplate(replica);
+        replicaJdbc.execute("DROP ALL OBJECTS");
+        for (String statement : new JdbcTemplate(primary).queryForList("SCRIPT", String.class)) {
+            replicaJdbc.execute(statement);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.udacity.jdnd.course3.critter;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.udacity.jdnd.course3.critter.metrics.RequestStatsInterceptor;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Drives requests through {@link RequestStatsInterceptor} and reads back what it published.
+ * The slow-request threshold is zero so every request is logged as slow.
+ */
+@SpringBootTest(classes = CritterApplication.class, properties = "critter.metrics.slow-request-ms=0")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+public class RequestStatsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Logger interceptorLog = (Logger) LoggerFactory.getLogger(RequestStatsInterceptor.class);
+    private final ListAppender<ILoggingEvent> logged = new ListAppender<>();
+
+    @BeforeEach
+    public void captureLog() {
+        logged.start();
+        interceptorLog.addAppender(logged);
+    }
+
+    @AfterEach
+    public void releaseLog() {
+        interceptorLog.detachAppender(logged);
+    }
+
+    @Test
+    public void testPublishesMetersWhenARequestCompletes() throws Exception {
+        String handler = "UserController.saveCustomer";
+        long requests = latencyCount(handler);
+        double statements = statementTotal(handler);
+
+        saveCustomer("Metered Owner");
+
+        Assertions.assertEquals(requests + 1, latencyCount(handler));
+        Assertions.assertTrue(statementTotal(handler) > statements, "the insert was not counted");
+        Assertions.assertNotNull(meterRegistry.find("critter.request.entity.loads").tag("handler", handler).summary());
+        Assertions.assertNotNull(meterRegistry.find("critter.request.connection.wait").tag("handler", handler).timer());
+        Assertions.assertTrue(slowRequestsLogged().stream().anyMatch(m -> m.startsWith("Slow request POST /user/customer handled by " + handler)),
+                "slow request was not logged: " + slowRequestsLogged());
+    }
+
+    @Test
+    public void testCountsWorkDoneOnTheStreamingThread() throws Exception {
+        saveCustomer("Exported Owner");
+        String handler = "ExportController.exportCustomers";
+        long requests = latencyCount(handler);
+        double statements = statementTotal(handler);
+
+        MvcResult result = mockMvc.perform(get("/export/customers"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // the handler only returns the body, its rows are read once streaming starts
+        Assertions.assertEquals(requests, latencyCount(handler), "published before the body was written");
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+
+        Assertions.assertEquals(requests + 1, latencyCount(handler), "an async request is published once");
+        Assertions.assertTrue(statementTotal(handler) > statements, "statements on the async thread were not counted");
+        Assertions.assertTrue(slowRequestsLogged().stream().anyMatch(m -> m.startsWith("Slow request GET /export/customers handled by " + handler)),
+                "slow request was not logged: " + slowRequestsLogged());
+    }
+
+    private void saveCustomer(String name) throws Exception {
+        mockMvc.perform(post("/user/customer")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"" + name + "\",\"phoneNumber\":\"555-0100\"}"))
+                .andExpect(status().isOk());
+    }
+
+    private long latencyCount(String handler) {
+        Timer timer = meterRegistry.find("critter.request.latency").tag("handler", handler).timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    private double statementTotal(String handler) {
+        DistributionSummary summary = meterRegistry.find("critter.request.statements").tag("handler", handler).summary();
+        return summary == null ? 0 : summary.totalAmount();
+    }
+
+    private List<String> slowRequestsLogged() {
+        return logged.list.stream().map(ILoggingEvent::getFormattedMessage).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,278 @@
+package com.udacity.jdnd.course3.critter;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.udacity.jdnd.course3.critter.common.EnumSetMaskConverter;
+import com.udacity.jdnd.course3.critter.dao.IdempotencyRecordRepository;
+import com.udacity.jdnd.course3.critter.pet.PetDTO;
+import com.udacity.jdnd.course3.critter.pet.PetType;
+import com.udacity.jdnd.course3.critter.schedule.RecurrenceFrequency;
+import com.udacity.jdnd.course3.critter.schedule.ScheduleConflictException;
+import com.udacity.jdnd.course3.critter.schedule.ScheduleController;
+import com.udacity.jdnd.course3.critter.schedule.ScheduleDTO;
+import com.udacity.jdnd.course3.critter.schedule.ScheduleOverrideDTO;
+import com.udacity.jdnd.course3.critter.service.AvailabilityIndexService;
+import com.udacity.jdnd.course3.critter.service.IdempotencyService;
+import com.udacity.jdnd.course3.critter.service.PetService;
+import com.udacity.jdnd.course3.critter.service.ScheduleService;
+import com.udacity.jdnd.course3.critter.service.UserService;
+import com.udacity.jdnd.course3.critter.service.UtilizationService;
+import com.udacity.jdnd.course3.critter.service.impl.IdempotencyServiceImpl;
+import com.udacity.jdnd.course3.critter.user.CustomerDTO;
+import com.udacity.jdnd.course3.critter.user.EmployeeDTO;
+import com.udacity.jdnd.course3.critter.user.EmployeeSkill;
+import com.udacity.jdnd.course3.critter.utilization.RollupRebuildReport;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Books from many threads at once against committed data. Not transactional, so the context
+ * and its database are thrown away afterwards.
+ */
+@SpringBootTest(classes = CritterApplication.class, properties = "critter.idempotency.persistent=true")
+@AutoConfigureTestDatabase(replace= AutoConfigureTestDatabase.Replace.ANY)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+public class ScheduleConcurrencyTest {
+    private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private static final LocalDate MONDAY = LocalDate.of(2024, 1, 1);
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PetService petService;
+
+    @Autowired
+    private ScheduleService scheduleService;
+
+    @Autowired
+    private ScheduleController scheduleController;
+
+    @Autowired
+    private UtilizationService utilizationService;
+
+    @Autowired
+    private AvailabilityIndexService availabilityIndex;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testOnlyOneBookingWinsPerEmployeeAndDay() throws Exception {
+        long employeeId = saveEmployee();
+        List<Long> petIds = savePets(THREADS);
+
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        runConcurrently(THREADS, i -> {
+            try {
+                scheduleService.createSchedule(booking(petIds.get(i), employeeId, MONDAY));
+                booked.incrementAndGet();
+            } catch (ScheduleConflictException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        Assertions.assertEquals(1, booked.get());
+        Assertions.assertEquals(THREADS - 1, rejected.get());
+        Assertions.assertEquals(1, scheduleService.getScheduleForEmployee(employeeId, MONDAY, MONDAY, 10).size());
+    }
+
+    @Test
+    public void testIndependentBookingsScaleAcrossThreads() throws Exception {
+        int employees = THREADS;
+        int bookingsPerEmployee = 50;
+        List<Long> employeeIds = IntStream.range(0, employees).mapToObj(i -> saveEmployee()).collect(Collectors.toList());
+        List<Long> petIds = savePets(employees);
+
+        long singleThreaded = timeBookings(1, employeeIds, petIds, bookingsPerEmployee, 0);
+        long multiThreaded = timeBookings(THREADS, employeeIds, petIds, bookingsPerEmployee, bookingsPerEmployee);
+        System.out.printf("Booked %d schedules: 1 thread %d ms, %d threads %d ms%n",
+                employees * bookingsPerEmployee, singleThreaded, THREADS, multiThreaded);
+
+        Integer doubleBooked = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM (SELECT es.employee_id, s.date FROM employee_scheduled es " +
+                        "JOIN schedule s ON s.id = es.schedule_id GROUP BY es.employee_id, s.date HAVING COUNT(*) > 1) t",
+                Integer.class);
+        Assertions.assertEquals(0, doubleBooked);
+        int total = employeeIds.stream()
+                .mapToInt(id -> scheduleService.getScheduleForEmployee(id, null, null, 1000).size())
+                .sum();
+        Assertions.assertEquals(2 * employees * bookingsPerEmployee, total);
+    }
+
+    @Test
+    public void testConcurrentRetriesBookOnce() throws Exception {
+        long employeeId = saveEmployee();
+        ScheduleDTO booking = booking(savePets(1).get(0), employeeId, MONDAY.plusYears(1));
+
+        Set<Long> responses = ConcurrentHashMap.newKeySet();
+        runConcurrently(THREADS, i -> responses.add(scheduleController.createSchedule("concurrent-retry", booking).getId()));
+
+        Assertions.assertEquals(1, responses.size());
+        Assertions.assertEquals(1, scheduleService.getScheduleForEmployee(employeeId, null, null, 10).size());
+
+        // a fresh instance only has the table to go on, as after a restart
+        IdempotencyService restarted = new IdempotencyServiceImpl(idempotencyRecordRepository, transactionManager, objectMapper,
+                true, 100, 24, 1000);
+        ScheduleDTO replayed = restarted.execute("concurrent-retry", idempotencyRecordRepository.findById("concurrent-retry").get().getFingerprint(),
+                ScheduleDTO.class, () -> Assertions.fail("should have been replayed"));
+        Assertions.assertEquals(responses.iterator().next(), replayed.getId());
+    }
+
+    @Test
+    public void testAvailabilityFollowsCommittedEmployeeRows() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        long rolledBack = transaction.execute(status -> {
+            status.setRollbackOnly();
+            return saveEmployee();
+        });
+        Assertions.assertFalse(indexedOnMonday(rolledBack));
+        long employeeId = saveEmployee();
+        transaction.execute(status -> {
+            userService.setAvailability(EnumSet.of(DayOfWeek.TUESDAY), employeeId);
+            status.setRollbackOnly();
+            return null;
+        });
+        Assertions.assertTrue(indexedOnMonday(employeeId));
+
+        // as if another instance narrowed the employee to Tuesdays, leaving this index as it was
+        jdbcTemplate.update("UPDATE employee SET days_available = ? WHERE id = ?", EnumSetMaskConverter.bit(DayOfWeek.TUESDAY), employeeId);
+        List<Long> petIds = savePets(2);
+        LocalDate monday = LocalDate.of(2027, 1, 4);
+        Assertions.assertThrows(ScheduleConflictException.class, () -> scheduleService.createSchedule(booking(petIds.get(0), employeeId, monday)));
+        scheduleService.createSchedule(booking(petIds.get(1), employeeId, monday.plusDays(1)));
+    }
+
+    @Test
+    public void testRebuildReproducesIncrementalRollups() throws Exception {
+        List<Long> employeeIds = IntStream.range(0, THREADS).mapToObj(i -> saveEmployee()).collect(Collectors.toList());
+        List<Long> petIds = savePets(THREADS);
+        LocalDate start = MONDAY.plusYears(2);
+        runConcurrently(THREADS, i -> {
+            ScheduleDTO weekly = booking(petIds.get(i), employeeIds.get(i), start);
+            weekly.setRecurrence(RecurrenceFrequency.WEEKLY);
+            weekly.setRecurrenceEnd(start.plusWeeks(9));
+            long seriesId = scheduleService.createSchedule(weekly).getId();
+            ScheduleOverrideDTO move = new ScheduleOverrideDTO();
+            move.setOriginalDate(start.plusWeeks(2));
+            move.setDate(start.plusWeeks(2).plusDays(i % 7));
+            scheduleService.overrideOccurrence(seriesId, move);
+            scheduleService.createSchedule(booking(petIds.get(i), employeeIds.get(i), start.plusWeeks(10)));
+        });
+
+        String rows = "SELECT employee_id, date, activity, bookings FROM booking_rollup ORDER BY employee_id, date, activity";
+        List<Map<String, Object>> incremental = jdbcTemplate.queryForList(rows);
+        RollupRebuildReport report = utilizationService.rebuild();
+        Assertions.assertEquals(incremental, jdbcTemplate.queryForList(rows));
+        Assertions.assertEquals(incremental.size(), report.getRows());
+        Assertions.assertEquals(11, utilizationService.getEmployeeUtilization(employeeIds.get(0), start, start.plusWeeks(10)).getBookedDays());
+    }
+
+    /**
+     * Every employee books its own pet once a week, starting {@code firstWeek} weeks
+     * after {@link #MONDAY}. With {@code threads > 1} each thread handles whole employees, so
+     * no two threads ever contend for the same stripe by design.
+     */
+    private long timeBookings(int threads, List<Long> employeeIds, List<Long> petIds, int bookingsPerEmployee, int firstWeek) throws Exception {
+        long start = System.nanoTime();
+        runConcurrently(threads, t -> {
+            for (int e = t; e < employeeIds.size(); e += threads) {
+                for (int b = 0; b < bookingsPerEmployee; b++) {
+                    scheduleService.createSchedule(booking(petIds.get(e), employeeIds.get(e), MONDAY.plusWeeks(firstWeek + b)));
+                }
+            }
+        });
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private static void runConcurrently(int threads, IntConsumer task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.accept(index);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long saveEmployee() {
+        EmployeeDTO employee = new EmployeeDTO();
+        employee.setName("Groomer");
+        employee.setSkills(Sets.newHashSet(EmployeeSkill.SHAVING));
+        employee.setDaysAvailable(EnumSet.allOf(DayOfWeek.class));
+        return userService.saveEmployee(employee).getId();
+    }
+
+    private boolean indexedOnMonday(long employeeId) {
+        return availabilityIndex.findSkillCoverage(DayOfWeek.MONDAY, EnumSet.allOf(EmployeeSkill.class)).containsKey(employeeId);
+    }
+
+    private List<Long> savePets(int count) {
+        CustomerDTO customer = new CustomerDTO();
+        customer.setName("Busy Owner");
+        customer.setPhoneNumber("555-0199");
+        long ownerId = userService.saveCustomer(customer).getId();
+        return IntStream.range(0, count).mapToObj(i -> {
+            PetDTO pet = new PetDTO();
+            pet.setName("pet" + i);
+            pet.setType(PetType.DOG);
+            pet.setOwnerId(ownerId);
+            return petService.save(pet).getId();
+        }).collect(Collectors.toList());
+    }
+
+    private static ScheduleDTO booking(long petId, long employeeId, LocalDate date) {
+        ScheduleDTO scheduleDTO = new ScheduleDTO();
+        scheduleDTO.setPetIds(Lists.newArrayList(petId));
+        scheduleDTO.setEmployeeIds(Lists.newArrayList(employeeId));
+        scheduleDTO.setDate(date);
+        scheduleDTO.setActivities(Sets.newHashSet(EmployeeSkill.SHAVING));
+        return scheduleDTO;
+    }
+
+    private interface IntConsumer {
+        void accept(int value) throws Exception;
+    }
+}
@@ -0,0 +1,108 @@
+package com.udacity.jdnd.course3.critter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.udacity.jdnd.course3.critter.cache.CacheRegionStatsDTO;
+import com.udacity.jdnd.course3.critter.pet.Pet;
+import com.udacity.jdnd.course3.critter.pet.PetDTO;
+import com.udacity.jdnd.course3.critter.pet.PetType;
+import com.udacity.jdnd.course3.critter.user.CustomerDTO;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Reads and writes through the endpoints, each request in its own committed transaction, since
+ * a read-write cache entry is only visible to transactions that start after it was put. Not
+ * transactional, so the context and its database are thrown away afterwards.
+ */
+@SpringBootTest(classes = CritterApplication.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.ANY)
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+public class SecondLevelCacheTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    public void testGetPetIsServedFromTheSecondLevelCache() throws Exception {
+        CustomerDTO customer = new CustomerDTO();
+        customer.setName("Cached Owner");
+        customer.setPhoneNumber("555-0100");
+        long ownerId = save("/user/customer", customer, CustomerDTO.class).getId();
+        PetDTO pet = new PetDTO();
+        pet.setName("Rex");
+        pet.setType(PetType.DOG);
+        pet.setOwnerId(ownerId);
+        long petId = save("/pet", pet, PetDTO.class).getId();
+        entityManagerFactory.getCache().evict(Pet.class);
+        CacheRegionStatsDTO before = petCacheStats();
+
+        assertGetPet(petId, "Rex");
+        CacheRegionStatsDTO afterFirstRead = petCacheStats();
+        Assertions.assertEquals(before.getMisses() + 1, afterFirstRead.getMisses());
+        Assertions.assertEquals(before.getHits(), afterFirstRead.getHits());
+        Assertions.assertEquals(before.getPuts() + 1, afterFirstRead.getPuts());
+
+        assertGetPet(petId, "Rex");
+        CacheRegionStatsDTO afterSecondRead = petCacheStats();
+        Assertions.assertEquals(afterFirstRead.getMisses(), afterSecondRead.getMisses());
+        Assertions.assertEquals(afterFirstRead.getHits() + 1, afterSecondRead.getHits());
+
+        // the committed update replaces the cached entry, so the next read hits the new state
+        pet.setId(petId);
+        pet.setName("Renamed");
+        save("/pet", pet, PetDTO.class);
+        CacheRegionStatsDTO afterSave = petCacheStats();
+        Assertions.assertTrue(afterSave.getPuts() > afterSecondRead.getPuts());
+        assertGetPet(petId, "Renamed");
+        CacheRegionStatsDTO afterThirdRead = petCacheStats();
+        Assertions.assertEquals(afterSave.getMisses(), afterThirdRead.getMisses());
+        Assertions.assertEquals(afterSave.getHits() + 1, afterThirdRead.getHits());
+    }
+
+    private void assertGetPet(long petId, String name) throws Exception {
+        mockMvc.perform(get("/pet/" + petId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value(name));
+    }
+
+    private CacheRegionStatsDTO petCacheStats() throws Exception {
+        String body = mockMvc.perform(get("/cache/stats"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return Arrays.stream(objectMapper.readValue(body, CacheRegionStatsDTO[].class))
+                .filter(region -> region.getRegion().equals(Pet.class.getName()))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("no cache region for " + Pet.class.getName()));
+    }
+
+    private <T> T save(String url, Object body, Class<T> type) throws Exception {
+        String response = mockMvc.perform(post(url)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(body)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, type);
+    }
+}
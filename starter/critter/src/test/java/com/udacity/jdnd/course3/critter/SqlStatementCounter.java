@@ -0,0 +1,85 @@
+package com.udacity.jdnd.course3.critter;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread while a block runs,
+ * grouped by type. Registered for tests as {@code hibernate.session_factory.statement_inspector};
+ * outside {@link #count} it only passes statements through.
+ * <p>
+ * Statements are counted when prepared, so a JDBC batch of inserts counts once.
+ */
+public class SqlStatementCounter implements StatementInspector {
+    private static final ThreadLocal<Counts> CURRENT = new ThreadLocal<>();
+
+    public enum Type { SELECT, INSERT, UPDATE, DELETE, OTHER }
+
+    @Override
+    public String inspect(String sql) {
+        Counts counts = CURRENT.get();
+        if (counts != null) {
+            counts.add(typeOf(sql));
+        }
+        return sql;
+    }
+
+    public static Counts count(Runnable block) {
+        Counts outer = CURRENT.get();
+        Counts counts = new Counts();
+        CURRENT.set(counts);
+        try {
+            block.run();
+            return counts;
+        } finally {
+            CURRENT.set(outer);
+            if (outer != null) {
+                counts.counts.forEach((type, n) -> outer.counts.merge(type, n, Integer::sum));
+            }
+        }
+    }
+
+    private static Type typeOf(String sql) {
+        String start = sql.trim().toLowerCase(Locale.ROOT);
+        for (Type type : Type.values()) {
+            if (start.startsWith(type.name().toLowerCase(Locale.ROOT))) {
+                return type;
+            }
+        }
+        return Type.OTHER;
+    }
+
+    public static class Counts {
+        private final Map<Type, Integer> counts = new EnumMap<>(Type.class);
+
+        private void add(Type type) {
+            counts.merge(type, 1, Integer::sum);
+        }
+
+        public int get(Type type) {
+            return counts.getOrDefault(type, 0);
+        }
+
+        public int total() {
+            return counts.values().stream().mapToInt(Integer::intValue).sum();
+        }
+
+        /**
+         * Counts without {@link Type#OTHER}, which holds sequence calls whose number depends on
+         * where the pooled allocation happens to be.
+         */
+        public Map<Type, Integer> queries() {
+            Map<Type, Integer> queries = new EnumMap<>(counts);
+            queries.remove(Type.OTHER);
+            return queries;
+        }
+
+        @Override
+        public String toString() {
+            return counts.toString();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.udacity.jdnd.course3.critter.benchmark;
+
+import com.google.common.collect.Lists;
+import com.udacity.jdnd.course3.critter.common.CursorPage;
+import com.udacity.jdnd.course3.critter.schedule.Schedule;
+import com.udacity.jdnd.course3.critter.schedule.ScheduleController;
+import com.udacity.jdnd.course3.critter.schedule.ScheduleDTO;
+import com.udacity.jdnd.course3.critter.service.AssignmentService;
+import com.udacity.jdnd.course3.critter.service.ScheduleService;
+import com.udacity.jdnd.course3.critter.service.UserService;
+import com.udacity.jdnd.course3.critter.user.CustomerDTO;
+import com.udacity.jdnd.course3.critter.user.Employee;
+import com.udacity.jdnd.course3.critter.user.EmployeeRequestDTO;
+import com.udacity.jdnd.course3.critter.user.EmployeeSkill;
+import com.udacity.jdnd.course3.critter.user.UserController;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service and controller hot paths against the seeded database. Throughput and sample-time
+ * modes together give ops/s and latency percentiles; the benchmark profile adds the gc
+ * profiler and writes JSON to {@code target/jmh-result.json}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class HotPathBenchmark {
+    private final Random random = new Random(7);
+
+    private UserService userService;
+    private ScheduleService scheduleService;
+    private AssignmentService assignmentService;
+    private UserController userController;
+    private ScheduleController scheduleController;
+
+    @Setup(Level.Trial)
+    public void setUp(SeededCritter critter) {
+        userService = critter.getBean(UserService.class);
+        scheduleService = critter.getBean(ScheduleService.class);
+        assignmentService = critter.getBean(AssignmentService.class);
+        userController = critter.getBean(UserController.class);
+        scheduleController = critter.getBean(ScheduleController.class);
+    }
+
+    @Benchmark
+    public List<Employee> findEmployeeByService(SeededCritter critter) {
+        EmployeeRequestDTO request = new EmployeeRequestDTO();
+        request.setDate(SeededCritter.FIRST_DAY.plusDays(random.nextInt(SeededCritter.DAYS)));
+        request.setSkills(EnumSet.of(EmployeeSkill.values()[random.nextInt(EmployeeSkill.values().length)]));
+        return critter.inRequest(() -> userService.findEmployeeByService(request));
+    }
+
+    @Benchmark
+    public List<Long> chooseEmployees() {
+        EnumSet<EmployeeSkill> activities = EnumSet.of(EmployeeSkill.values()[random.nextInt(EmployeeSkill.values().length)],
+                EmployeeSkill.values()[random.nextInt(EmployeeSkill.values().length)]);
+        return assignmentService.chooseEmployees(SeededCritter.FIRST_DAY.plusDays(random.nextInt(SeededCritter.DAYS)), activities);
+    }
+
+    @Benchmark
+    public List<ScheduleDTO> getScheduleForCustomer(SeededCritter critter) {
+        long customerId = SeededCritter.randomElement(random, critter.customerIds);
+        return critter.inRequest(() -> scheduleController.getScheduleForCustomer(customerId, null, null));
+    }
+
+    @Benchmark
+    public List<ScheduleDTO> getScheduleForEmployee(SeededCritter critter) {
+        long employeeId = SeededCritter.randomElement(random, critter.employeeIds);
+        return critter.inRequest(() -> scheduleController.getScheduleForEmployee(employeeId, null, null, null).getBody());
+    }
+
+    @Benchmark
+    public CursorPage<ScheduleDTO> buildScheduleResponse(SeededCritter critter) {
+        return critter.inRequest(() -> scheduleController.getSchedules(null, CursorPage.DEFAULT_LIMIT));
+    }
+
+    @Benchmark
+    public CursorPage<CustomerDTO> buildCustomerResponse(SeededCritter critter) {
+        return critter.inRequest(() -> userController.getCustomers(null, CursorPage.DEFAULT_LIMIT));
+    }
+
+    @Benchmark
+    public Schedule createSchedule(SeededCritter critter) {
+        ScheduleDTO request = new ScheduleDTO();
+        request.setDate(critter.nextBookingDate());
+        request.setPetIds(Lists.newArrayList(SeededCritter.randomElement(random, critter.petIds)));
+        request.setEmployeeIds(Lists.newArrayList(SeededCritter.randomElement(random, critter.employeeIds)));
+        request.setActivities(EnumSet.of(EmployeeSkill.WALKING));
+        return scheduleService.createSchedule(request);
+    }
+}
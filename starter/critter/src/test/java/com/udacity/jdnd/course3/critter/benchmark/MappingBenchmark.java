@@ -0,0 +1,104 @@
+package com.udacity.jdnd.course3.critter.benchmark;
+
+import com.udacity.jdnd.course3.critter.pet.Pet;
+import com.udacity.jdnd.course3.critter.pet.PetType;
+import com.udacity.jdnd.course3.critter.schedule.Schedule;
+import com.udacity.jdnd.course3.critter.schedule.ScheduleDTO;
+import com.udacity.jdnd.course3.critter.schedule.ScheduleMapper;
+import com.udacity.jdnd.course3.critter.user.*;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Reflective {@link ModelMapper} against the hand-written mappers for the conversions on
+ * the list endpoints. Run with {@code -prof gc} to compare allocation rates as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+    private final ModelMapper modelMapper = new ModelMapper();
+    private final ScheduleMapper scheduleMapper = new ScheduleMapper();
+    private final CustomerMapper customerMapper = new CustomerMapper();
+    private final EmployeeMapper employeeMapper = new EmployeeMapper();
+
+    private Schedule schedule;
+    private Customer customer;
+    private Employee employee;
+
+    @Setup
+    public void setUp() {
+        customer = new Customer();
+        customer.setId(1L);
+        customer.setName("Orez");
+        customer.setPhoneNumber("222-333-444");
+        List<Pet> pets = IntStream.range(0, 3).mapToObj(i -> {
+            Pet pet = new Pet();
+            pet.setId(10L + i);
+            pet.setName("pet" + i);
+            pet.setType(PetType.CAT);
+            pet.setCustomer(customer);
+            return pet;
+        }).collect(Collectors.toList());
+        customer.setPets(pets);
+
+        employee = new Employee();
+        employee.setId(20L);
+        employee.setName("Orez");
+        employee.setSkills(EnumSet.of(EmployeeSkill.FEEDING, EmployeeSkill.PETTING));
+        employee.setDaysAvailable(EnumSet.of(DayOfWeek.MONDAY, DayOfWeek.FRIDAY));
+
+        schedule = new Schedule();
+        schedule.setId(30L);
+        schedule.setDate(LocalDate.of(2024, 1, 1));
+        schedule.setActivities(EnumSet.of(EmployeeSkill.WALKING, EmployeeSkill.FEEDING));
+        schedule.setPets(pets);
+        schedule.getEmployees().add(employee);
+    }
+
+    @Benchmark
+    public ScheduleDTO scheduleModelMapper() {
+        ScheduleDTO response = modelMapper.map(schedule, ScheduleDTO.class);
+        response.setPetIds(schedule.getPets().stream().map(Pet::getId).collect(Collectors.toList()));
+        response.setEmployeeIds(schedule.getEmployees().stream().map(Employee::getId).collect(Collectors.toList()));
+        return response;
+    }
+
+    @Benchmark
+    public ScheduleDTO scheduleHandWritten() {
+        return scheduleMapper.toDTO(schedule);
+    }
+
+    @Benchmark
+    public CustomerDTO customerModelMapper() {
+        CustomerDTO response = modelMapper.map(customer, CustomerDTO.class);
+        response.setPetIds(customer.getPets().stream().map(Pet::getId).collect(Collectors.toList()));
+        return response;
+    }
+
+    @Benchmark
+    public CustomerDTO customerHandWritten() {
+        return customerMapper.toDTO(customer);
+    }
+
+    @Benchmark
+    public EmployeeDTO employeeModelMapper() {
+        return modelMapper.map(employee, EmployeeDTO.class);
+    }
+
+    @Benchmark
+    public EmployeeDTO employeeHandWritten() {
+        return employeeMapper.toDTO(employee);
+    }
+}
@@ -0,0 +1,118 @@
+package com.udacity.jdnd.course3.critter.benchmark;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.udacity.jdnd.course3.critter.CritterApplication;
+import com.udacity.jdnd.course3.critter.pet.PetDTO;
+import com.udacity.jdnd.course3.critter.pet.PetType;
+import com.udacity.jdnd.course3.critter.schedule.ScheduleDTO;
+import com.udacity.jdnd.course3.critter.service.PetService;
+import com.udacity.jdnd.course3.critter.service.ScheduleService;
+import com.udacity.jdnd.course3.critter.service.UserService;
+import com.udacity.jdnd.course3.critter.user.CustomerDTO;
+import com.udacity.jdnd.course3.critter.user.EmployeeDTO;
+import com.udacity.jdnd.course3.critter.user.EmployeeSkill;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Compares creating schedules one service call at a time with the batched
+ * {@code createSchedules} path. Scores are schedule rows per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ScheduleBatchBenchmark {
+    private static final int ROWS = 1000;
+
+    private ConfigurableApplicationContext context;
+    private ScheduleService scheduleService;
+    private JdbcTemplate jdbcTemplate;
+    private List<ScheduleDTO> requests;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(CritterApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("logging.level.root=WARN")
+                .run();
+        scheduleService = context.getBean(ScheduleService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        UserService userService = context.getBean(UserService.class);
+        PetService petService = context.getBean(PetService.class);
+
+        CustomerDTO customer = new CustomerDTO();
+        customer.setName("Bench");
+        customer.setPhoneNumber("555-0100");
+        long ownerId = userService.saveCustomer(customer).getId();
+        List<Long> petIds = IntStream.range(0, 20).mapToObj(i -> {
+            PetDTO pet = new PetDTO();
+            pet.setName("pet" + i);
+            pet.setType(PetType.DOG);
+            pet.setOwnerId(ownerId);
+            return petService.save(pet).getId();
+        }).collect(Collectors.toList());
+        List<Long> employeeIds = IntStream.range(0, 20).mapToObj(i -> {
+            EmployeeDTO employee = new EmployeeDTO();
+            employee.setName("employee" + i);
+            employee.setSkills(EnumSet.allOf(EmployeeSkill.class));
+            employee.setDaysAvailable(EnumSet.allOf(DayOfWeek.class));
+            return userService.saveEmployee(employee).getId();
+        }).collect(Collectors.toList());
+
+        Random random = new Random(42);
+        requests = IntStream.range(0, ROWS).mapToObj(i -> {
+            ScheduleDTO schedule = new ScheduleDTO();
+            schedule.setPetIds(Lists.newArrayList(petIds.get(random.nextInt(petIds.size()))));
+            schedule.setEmployeeIds(Lists.newArrayList(employeeIds.get(random.nextInt(employeeIds.size()))));
+            schedule.setDate(LocalDate.of(2024, 1, 1).plusDays(i));
+            schedule.setActivities(Sets.newHashSet(EmployeeSkill.WALKING));
+            return schedule;
+        }).collect(Collectors.toList());
+    }
+
+    /**
+     * Every invocation books the same dates again, so they have to be cleared in between or
+     * the second invocation would be rejected as a double booking.
+     */
+    @TearDown(Level.Invocation)
+    public void deleteSchedules() {
+        jdbcTemplate.update("DELETE FROM pet_scheduled");
+        jdbcTemplate.update("DELETE FROM employee_scheduled");
+        jdbcTemplate.update("DELETE FROM schedule");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void createOneByOne() {
+        for (ScheduleDTO request : requests) {
+            scheduleService.createSchedule(request);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int createBatch() {
+        return scheduleService.createSchedules(requests).size();
+    }
+}
@@ -0,0 +1,147 @@
+package com.udacity.jdnd.course3.critter.benchmark;
+
+import com.google.common.collect.Lists;
+import com.udacity.jdnd.course3.critter.CritterApplication;
+import com.udacity.jdnd.course3.critter.pet.PetDTO;
+import com.udacity.jdnd.course3.critter.pet.PetType;
+import com.udacity.jdnd.course3.critter.schedule.ScheduleDTO;
+import com.udacity.jdnd.course3.critter.service.PetService;
+import com.udacity.jdnd.course3.critter.service.ScheduleService;
+import com.udacity.jdnd.course3.critter.service.UserService;
+import com.udacity.jdnd.course3.critter.user.CustomerDTO;
+import com.udacity.jdnd.course3.critter.user.EmployeeDTO;
+import com.udacity.jdnd.course3.critter.user.EmployeeSkill;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Shared benchmark state: boots the application against embedded H2 (the test
+ * {@code application.properties}) and seeds customers, pets, employees and schedules
+ * through the regular services with a fixed random seed.
+ */
+@State(Scope.Benchmark)
+public class SeededCritter {
+    static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+    static final int DAYS = 365;
+
+    @Param({"200"})
+    public int customers;
+
+    @Param({"3"})
+    public int petsPerCustomer;
+
+    @Param({"100"})
+    public int employees;
+
+    @Param({"5000"})
+    public int schedules;
+
+    ConfigurableApplicationContext context;
+    TransactionTemplate transactionTemplate;
+    List<Long> customerIds;
+    List<Long> petIds;
+    List<Long> employeeIds;
+    private final AtomicLong bookingDay = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void seed() {
+        context = new SpringApplicationBuilder(CritterApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("logging.level.root=WARN")
+                .run();
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        UserService userService = context.getBean(UserService.class);
+        PetService petService = context.getBean(PetService.class);
+        ScheduleService scheduleService = context.getBean(ScheduleService.class);
+        Random random = new Random(42);
+
+        customerIds = new ArrayList<>(customers);
+        petIds = new ArrayList<>(customers * petsPerCustomer);
+        for (int c = 0; c < customers; c++) {
+            CustomerDTO customer = new CustomerDTO();
+            customer.setName("customer" + c);
+            customer.setPhoneNumber("555-" + c);
+            long ownerId = userService.saveCustomer(customer).getId();
+            customerIds.add(ownerId);
+            for (int p = 0; p < petsPerCustomer; p++) {
+                PetDTO pet = new PetDTO();
+                pet.setName("pet" + c + "-" + p);
+                pet.setType(PetType.values()[random.nextInt(PetType.values().length)]);
+                pet.setOwnerId(ownerId);
+                petIds.add(petService.save(pet).getId());
+            }
+        }
+
+        employeeIds = new ArrayList<>(employees);
+        for (int e = 0; e < employees; e++) {
+            EmployeeDTO employee = new EmployeeDTO();
+            employee.setName("employee" + e);
+            employee.setSkills(randomSubset(random, EmployeeSkill.values()));
+            employee.setDaysAvailable(EnumSet.allOf(DayOfWeek.class));
+            employeeIds.add(userService.saveEmployee(employee).getId());
+        }
+
+        // consecutive bookings on a day never share an employee or a pet
+        int perDay = Math.min(employees, petIds.size());
+        List<ScheduleDTO> requests = new ArrayList<>(schedules);
+        for (int s = 0; s < schedules; s++) {
+            ScheduleDTO schedule = new ScheduleDTO();
+            schedule.setPetIds(Lists.newArrayList(petIds.get(s % petIds.size())));
+            schedule.setEmployeeIds(Lists.newArrayList(employeeIds.get(s % employees)));
+            schedule.setDate(FIRST_DAY.plusDays(s / perDay));
+            schedule.setActivities(EnumSet.of(EmployeeSkill.values()[random.nextInt(EmployeeSkill.values().length)]));
+            requests.add(schedule);
+        }
+        for (List<ScheduleDTO> chunk : Lists.partition(requests, 1000)) {
+            scheduleService.createSchedules(chunk);
+        }
+        bookingDay.set(schedules / perDay + 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        context.close();
+    }
+
+    <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * Runs the call in a read-write transaction, like an open-session-in-view request would,
+     * so controller response building can touch lazy associations.
+     */
+    <T> T inRequest(Supplier<T> call) {
+        return transactionTemplate.execute(status -> call.get());
+    }
+
+    /**
+     * Every new booking gets a fresh day so it never collides with an earlier one.
+     */
+    LocalDate nextBookingDate() {
+        return FIRST_DAY.plusDays(bookingDay.getAndIncrement());
+    }
+
+    static <T> T randomElement(Random random, List<T> values) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    private static <T extends Enum<T>> Set<T> randomSubset(Random random, T[] values) {
+        Set<T> subset = Arrays.stream(values).filter(v -> random.nextBoolean()).collect(Collectors.toSet());
+        if (subset.isEmpty()) {
+            subset.add(values[random.nextInt(values.length)]);
+        }
+        return subset;
+    }
+}
@@ -0,0 +1,113 @@
+package com.udacity.jdnd.course3.critter.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.google.common.collect.Lists;
+import com.udacity.jdnd.course3.critter.common.CursorPage;
+import com.udacity.jdnd.course3.critter.pet.PetDTO;
+import com.udacity.jdnd.course3.critter.pet.PetType;
+import com.udacity.jdnd.course3.critter.schedule.ScheduleDTO;
+import com.udacity.jdnd.course3.critter.user.CustomerDTO;
+import com.udacity.jdnd.course3.critter.user.EmployeeSkill;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serializing one full page of the list endpoints as JSON, Smile and CBOR, each with and
+ * without gzip, using mappers configured the way the application's converters are. Bytes on
+ * the wire for every combination are printed once per trial, ahead of the timings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+    @Param({"schedules", "pets", "customers"})
+    private String payload;
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    @Param({"false", "true"})
+    private boolean gzip;
+
+    private ObjectMapper mapper;
+    private CursorPage<?> page;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        if ("smile".equals(format)) {
+            builder.factory(new SmileFactory().enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES));
+        } else if ("cbor".equals(format)) {
+            builder.factory(new CBORFactory());
+        }
+        mapper = builder.build();
+        page = new CursorPage<>(rows(new Random(11)), "AAAAAAAAAfQ");
+        System.out.printf("%n%s as %s%s: %d bytes%n", payload, format, gzip ? "+gzip" : "", serialize().length);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        try (OutputStream out = gzip ? new GZIPOutputStream(bytes) : bytes) {
+            mapper.writeValue(out, page);
+        }
+        return bytes.toByteArray();
+    }
+
+    private List<?> rows(Random random) {
+        IntStream ids = IntStream.range(1, CursorPage.MAX_LIMIT + 1);
+        switch (payload) {
+            case "schedules":
+                return ids.mapToObj(id -> schedule(random, id)).collect(Collectors.toList());
+            case "pets":
+                return ids.mapToObj(id -> pet(random, id)).collect(Collectors.toList());
+            default:
+                return ids.mapToObj(id -> customer(random, id)).collect(Collectors.toList());
+        }
+    }
+
+    private static ScheduleDTO schedule(Random random, long id) {
+        ScheduleDTO schedule = new ScheduleDTO();
+        schedule.setId(id);
+        schedule.setDate(LocalDate.of(2024, 1, 1).plusDays(random.nextInt(3650)));
+        schedule.setPetIds(Lists.newArrayList(1L + random.nextInt(200_000)));
+        schedule.setEmployeeIds(Lists.newArrayList(1L + random.nextInt(5_000), 1L + random.nextInt(5_000)));
+        schedule.setActivities(EnumSet.of(EmployeeSkill.values()[random.nextInt(EmployeeSkill.values().length)], EmployeeSkill.WALKING));
+        return schedule;
+    }
+
+    private static PetDTO pet(Random random, long id) {
+        PetDTO pet = new PetDTO();
+        pet.setId(id);
+        pet.setType(PetType.values()[random.nextInt(PetType.values().length)]);
+        pet.setName("pet" + id);
+        pet.setOwnerId(1L + random.nextInt(50_000));
+        pet.setBirthDate(LocalDate.of(2010, 1, 1).plusDays(random.nextInt(5000)));
+        pet.setNotes(random.nextBoolean() ? "Needs a muzzle at the vet" : null);
+        return pet;
+    }
+
+    private static CustomerDTO customer(Random random, long id) {
+        CustomerDTO customer = new CustomerDTO(id, "Customer " + id, String.format("555-%04d", random.nextInt(10_000)), null);
+        customer.setPetIds(random.longs(1 + random.nextInt(4), 1, 200_000).boxed().collect(Collectors.toList()));
+        return customer;
+    }
+}
@@ -0,0 +1,313 @@
+package com.udacity.jdnd.course3.critter.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Replays a weighted mix of REST calls against a running server from many threads and prints
+ * throughput and p50/p99/p999 latencies per endpoint. Ids are sampled from the export
+ * endpoints first, so it works against any data set, typically one made by the {@code seed}
+ * profile. Run with {@code mvn -Pload -DskipTests verify}, tuned through {@code -Dload.url},
+ * {@code -Dload.threads}, {@code -Dload.seconds} and {@code -Dload.warmup-seconds}.
+ * <p>
+ * Latencies are recorded from the client's side in microseconds, and only after warm-up.
+ * Booking calls that are refused with 409 count as rejected rather than failed, since random
+ * bookings are expected to collide now and then.
+ */
+public class LoadDriver {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(5);
+    private static final String[] SKILLS = {"PETTING", "WALKING", "FEEDING", "MEDICATING", "SHAVING"};
+
+    private final String baseUrl;
+    private final int threads;
+    private final long seconds;
+    private final long warmupSeconds;
+    private final int sampleRows;
+    private final List<Endpoint> mix = new ArrayList<>();
+    private int totalWeight;
+
+    private final List<Long> petIds = new ArrayList<>();
+    private final List<Long> ownerIds = new ArrayList<>();
+    private final List<Long> employeeIds = new ArrayList<>();
+    private LocalDate firstDate = LocalDate.now();
+    private LocalDate lastDate = LocalDate.now();
+
+    public static void main(String[] args) throws Exception {
+        LoadDriver driver = new LoadDriver(
+                System.getProperty("load.url", "http://localhost:8082"),
+                Integer.getInteger("load.threads", 16),
+                Long.getLong("load.seconds", 60),
+                Long.getLong("load.warmup-seconds", 10),
+                Integer.getInteger("load.sample-rows", 100_000));
+        driver.sampleIds();
+        driver.defineMix();
+        driver.report(driver.run());
+    }
+
+    LoadDriver(String baseUrl, int threads, long seconds, long warmupSeconds, int sampleRows) {
+        this.baseUrl = baseUrl;
+        this.threads = threads;
+        this.seconds = seconds;
+        this.warmupSeconds = warmupSeconds;
+        this.sampleRows = sampleRows;
+    }
+
+    private void defineMix() {
+        add("GET /pet/{petId}", 15, r -> get("/pet/" + any(r, petIds)));
+        add("GET /pet/owner/{ownerId}", 10, r -> get("/pet/owner/" + any(r, ownerIds)));
+        add("GET /user/customer/pet/{petId}", 10, r -> get("/user/customer/pet/" + any(r, petIds)));
+        add("GET /user/customer", 5, r -> get("/user/customer"));
+        add("GET /schedule", 5, r -> get("/schedule"));
+        add("GET /user/employee/availability", 5, r -> get("/user/employee/availability?skills="
+                + SKILLS[r.nextInt(SKILLS.length)] + "&date=" + anyDate(r)));
+        add("GET /schedule/pet/{petId}", 15, r -> get("/schedule/pet/" + any(r, petIds)));
+        add("GET /schedule/employee/{employeeId}", 15, r -> {
+            LocalDate from = anyDate(r);
+            return get("/schedule/employee/" + any(r, employeeIds) + "?from=" + from + "&to=" + from.plusDays(30));
+        });
+        add("GET /schedule/customer/{customerId}", 10, r -> {
+            LocalDate from = anyDate(r);
+            return get("/schedule/customer/" + any(r, ownerIds) + "?from=" + from + "&to=" + from.plusDays(90));
+        });
+        add("POST /schedule", 10, r -> post("/schedule", String.format(
+                "{\"petIds\":[%d],\"employeeIds\":[%d],\"date\":\"%s\",\"activities\":[\"%s\"]}",
+                any(r, petIds), any(r, employeeIds), futureDate(r), SKILLS[r.nextInt(SKILLS.length)])));
+        add("POST /schedule/auto", 5, r -> post("/schedule/auto", String.format(
+                "{\"petIds\":[%d],\"date\":\"%s\",\"activities\":[\"%s\"]}",
+                any(r, petIds), futureDate(r), SKILLS[r.nextInt(SKILLS.length)])));
+    }
+
+    /**
+     * Pets and their owners come from the pet export and employees and dates from the schedule
+     * export, each read only up to {@code sampleRows} lines.
+     */
+    private void sampleIds() throws IOException {
+        Set<Long> owners = new LinkedHashSet<>();
+        readNdjson("/export/pets", row -> {
+            petIds.add(row.get("id").asLong());
+            owners.add(row.get("ownerId").asLong());
+        });
+        ownerIds.addAll(owners);
+        Set<Long> employees = new LinkedHashSet<>();
+        List<LocalDate> dates = new ArrayList<>();
+        readNdjson("/export/schedules", row -> {
+            row.get("employeeIds").forEach(id -> employees.add(id.asLong()));
+            dates.add(LocalDate.parse(row.get("date").asText()));
+        });
+        employeeIds.addAll(employees);
+        if (petIds.isEmpty() || employeeIds.isEmpty()) {
+            throw new IllegalStateException("No pets or schedules to sample; seed the server first");
+        }
+        firstDate = Collections.min(dates);
+        lastDate = Collections.max(dates);
+        System.out.printf("Sampled %d pets, %d owners and %d employees, schedules from %s to %s%n",
+                petIds.size(), ownerIds.size(), employeeIds.size(), firstDate, lastDate);
+    }
+
+    private Map<String, EndpointStats> run() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+        List<Future<Map<String, EndpointStats>>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            futures.add(executor.submit(() -> work(new Random(seed), measureFrom, end)));
+        }
+        Map<String, EndpointStats> merged = new TreeMap<>();
+        try {
+            for (Future<Map<String, EndpointStats>> future : futures) {
+                future.get().forEach((name, stats) -> merged.computeIfAbsent(name, n -> new EndpointStats()).add(stats));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return merged;
+    }
+
+    private Map<String, EndpointStats> work(Random random, long measureFrom, long end) {
+        Map<String, EndpointStats> stats = new HashMap<>();
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            Endpoint endpoint = pick(random);
+            Request request = endpoint.request.apply(random);
+            int status = send(request);
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - now);
+            if (now >= measureFrom) {
+                stats.computeIfAbsent(endpoint.name, n -> new EndpointStats()).record(micros, status);
+            }
+        }
+        return stats;
+    }
+
+    private void report(Map<String, EndpointStats> results) {
+        EndpointStats total = new EndpointStats();
+        System.out.printf("%n%-38s %9s %9s %8s %8s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "req/s", "409", "errors", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        results.forEach((name, stats) -> {
+            print(name, stats);
+            total.add(stats);
+        });
+        print("total", total);
+    }
+
+    private void print(String name, EndpointStats stats) {
+        Histogram h = stats.histogram;
+        System.out.printf("%-38s %9d %9.1f %8d %8d %9.2f %9.2f %9.2f %9.2f%n",
+                name, h.getTotalCount(), h.getTotalCount() / (double) seconds, stats.rejected, stats.errors,
+                h.getValueAtPercentile(50) / 1000.0, h.getValueAtPercentile(99) / 1000.0,
+                h.getValueAtPercentile(99.9) / 1000.0, h.getMaxValue() / 1000.0);
+    }
+
+    private int send(Request request) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(baseUrl + request.path).openConnection();
+            connection.setRequestMethod(request.method);
+            connection.setRequestProperty("Accept", "application/json");
+            if (request.body != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(request.body.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            int status = connection.getResponseCode();
+            drain(status < 400 ? connection.getInputStream() : connection.getErrorStream());
+            return status;
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.disconnect();
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Reading the body to the end lets the connection go back to the keep-alive pool.
+     */
+    private static void drain(InputStream in) throws IOException {
+        if (in == null) {
+            return;
+        }
+        try (InputStream body = in) {
+            byte[] buffer = new byte[8192];
+            while (body.read(buffer) >= 0) {
+                // discard
+            }
+        }
+    }
+
+    private void readNdjson(String path, RowConsumer consumer) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            int rows = 0;
+            while (rows++ < sampleRows && (line = reader.readLine()) != null) {
+                consumer.accept(MAPPER.readTree(line));
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private void add(String name, int weight, Function<Random, Request> request) {
+        mix.add(new Endpoint(name, weight, request));
+        totalWeight += weight;
+    }
+
+    private Endpoint pick(Random random) {
+        int ticket = random.nextInt(totalWeight);
+        for (Endpoint endpoint : mix) {
+            ticket -= endpoint.weight;
+            if (ticket < 0) {
+                return endpoint;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    private static long any(Random random, List<Long> ids) {
+        return ids.get(random.nextInt(ids.size()));
+    }
+
+    private LocalDate anyDate(Random random) {
+        long span = Math.max(1, lastDate.toEpochDay() - firstDate.toEpochDay());
+        return firstDate.plusDays((long) (random.nextDouble() * span));
+    }
+
+    /**
+     * New bookings go after the seeded range so they mostly succeed.
+     */
+    private LocalDate futureDate(Random random) {
+        return lastDate.plusDays(1 + random.nextInt(3650));
+    }
+
+    private static Request get(String path) {
+        return new Request("GET", path, null);
+    }
+
+    private static Request post(String path, String body) {
+        return new Request("POST", path, body);
+    }
+
+    private static class Endpoint {
+        private final String name;
+        private final int weight;
+        private final Function<Random, Request> request;
+
+        private Endpoint(String name, int weight, Function<Random, Request> request) {
+            this.name = name;
+            this.weight = weight;
+            this.request = request;
+        }
+    }
+
+    private static class Request {
+        private final String method;
+        private final String path;
+        private final String body;
+
+        private Request(String method, String path, String body) {
+            this.method = method;
+            this.path = path;
+            this.body = body;
+        }
+    }
+
+    private static class EndpointStats {
+        private final Histogram histogram = new Histogram(HIGHEST_MICROS, 3);
+        private long rejected;
+        private long errors;
+
+        private void record(long micros, int status) {
+            histogram.recordValue(Math.min(micros, HIGHEST_MICROS));
+            if (status == 409) {
+                rejected++;
+            } else if (status < 200 || status >= 300) {
+                errors++;
+            }
+        }
+
+        private void add(EndpointStats other) {
+            histogram.add(other.histogram);
+            rejected += other.rejected;
+            errors += other.errors;
+        }
+    }
+
+    private interface RowConsumer {
+        void accept(JsonNode row) throws IOException;
+    }
+}